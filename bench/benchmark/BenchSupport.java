@@ -0,0 +1,83 @@
+package benchmark;
+
+import library.Book;
+import library.StringDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+// Shared pieces of the benchmark harness: a repeatable synthetic library and a simple timer.
+// The benchmarks are plain main classes, compiled together with src:
+//
+//   javac -d out -cp "pois&apache/*" $(find src bench -name '*.java')
+//   java -cp "out:pois&apache/*" benchmark.SearchBenchmark
+//
+// Numbers are medians of several timed runs after warm-up runs; they compare approaches on
+// one machine, they are not meant as absolute figures.
+final class BenchSupport {
+
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ra", "ten", "vor", "shi", "ben", "dal", "qua", "rin", "sel",
+            "tor", "um", "we", "xan", "yel", "zo", "har", "bor", "ing", "th", "est", "ion"
+    };
+
+    private static final String[] GENRES = {
+            "Fiction", "Non-Fiction", "Mystery", "Fantasy", "Science", "History",
+            "Romance", "Horror", "Biography", "Poetry", "Travel", "Children"
+    };
+
+    // Keeps results reachable so the JIT can't drop the work being timed
+    static volatile Object sink;
+
+    private BenchSupport() {
+    }
+
+    // count books with a few thousand authors and a dozen genres, the same for the same seed.
+    // They share one dictionary, as a loaded library does, so the sort and index take their
+    // shared-string paths
+    static List<Book> books(int count, long seed) {
+        Random random = new Random(seed);
+        int authors = Math.max(10, count / 100);
+        StringDictionary strings = new StringDictionary();
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String title = word(random) + " " + word(random) + " " + word(random);
+            String author = "Author " + word(new Random(random.nextInt(authors)));
+            String genre = GENRES[random.nextInt(GENRES.length)];
+            int year = 1900 + random.nextInt(126);
+            Date added = new Date(1_600_000_000_000L + random.nextInt(1_000_000_000) * 100L);
+            books.add(new Book(strings, title, author, added, genre, year, "", ""));
+        }
+        return books;
+    }
+
+    private static String word(Random random) {
+        int length = 2 + random.nextInt(3);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+        return sb.toString();
+    }
+
+    // Median wall time of task in milliseconds, over runs timed runs after warmups untimed ones
+    static double medianMillis(int warmups, int runs, Runnable task) {
+        for (int i = 0; i < warmups; i++) task.run();
+        double[] times = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            task.run();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        return times[runs / 2];
+    }
+
+    // Sizes from the command line, or the defaults
+    static int[] sizes(String[] args, int... defaults) {
+        if (args.length == 0) return defaults;
+        return Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+    }
+}
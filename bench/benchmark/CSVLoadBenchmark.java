@@ -0,0 +1,58 @@
+package benchmark;
+
+import library.Book;
+import service.BookCSVHandler;
+import service.BookCSVReader;
+import service.ChunkedCSVParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Loading a library CSV: ChunkedCSVParser (byte scanning over heap chunks, Strings only for
+// kept fields) versus the line-based BookCSVReader, on CSVs written by BookCSVHandler.
+// Both must return the same number of books.
+//
+//   java -cp out benchmark.CSVLoadBenchmark [sizes...]
+public class CSVLoadBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = BenchSupport.sizes(args, 100_000, 500_000);
+        System.out.printf("%10s %10s %14s %14s%n", "books", "MB", "reader ms", "chunked ms");
+
+        for (int size : sizes) {
+            File csv = File.createTempFile("bench-books", ".csv");
+            try {
+                BookCSVHandler.saveToCSV(BenchSupport.books(size, 11), csv.getPath());
+
+                int chunked = ChunkedCSVParser.load(csv.getPath()).size();
+                int read = readAll(csv).size();
+                if (chunked != read || read != size) throw new AssertionError(read + " / " + chunked + " of " + size);
+
+                double readerMs = BenchSupport.medianMillis(2, 5, () -> BenchSupport.sink = readAll(csv));
+                double chunkedMs = BenchSupport.medianMillis(2, 5, () -> {
+                    try {
+                        BenchSupport.sink = ChunkedCSVParser.load(csv.getPath());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                System.out.printf("%10d %10.1f %14.1f %14.1f%n", size, csv.length() / 1048576.0, readerMs, chunkedMs);
+            } finally {
+                csv.delete();
+            }
+        }
+    }
+
+    private static List<Book> readAll(File csv) {
+        List<Book> books = new ArrayList<>();
+        try (BookCSVReader reader = BookCSVReader.open(csv.getPath())) {
+            while (reader.hasNext()) books.add(reader.next());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return books;
+    }
+}
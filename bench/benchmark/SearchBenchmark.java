@@ -0,0 +1,62 @@
+package benchmark;
+
+import algorithm.BookSearchMap;
+import library.Book;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Search latency against library size: the n-gram index behind BookSearchMap.matches
+// versus the substring scan it replaced (every key checked with String.contains).
+// The scan pays for every key whatever the query; the index pays roughly for the keys
+// that match, so selective queries stay flat as the library grows, while a query that
+// matches a fixed share of the library still grows with the result.
+//
+//   java -cp out benchmark.SearchBenchmark [sizes...]
+public class SearchBenchmark {
+
+    // From common to rare in the synthetic titles; "zzq" matches nothing
+    private static final String[] QUERIES = {"ka", "ing", "harbor", "tenvorzo", "2001", "zzq"};
+
+    public static void main(String[] args) {
+        int[] sizes = BenchSupport.sizes(args, 10_000, 50_000, 100_000, 250_000, 500_000);
+        System.out.printf("%10s %10s %10s %12s %12s%n", "books", "query", "hits", "index ms", "scan ms");
+
+        for (int size : sizes) {
+            List<Book> books = BenchSupport.books(size, 42);
+            BookSearchMap index = new BookSearchMap(books);
+            Map<String, List<Book>> scanMap = scanMap(books);
+
+            for (String q : QUERIES) {
+                int hits = index.matches(q).size();
+                double indexed = BenchSupport.medianMillis(5, 15, () -> BenchSupport.sink = index.matches(q));
+                double scanned = BenchSupport.medianMillis(2, 7, () -> BenchSupport.sink = scan(scanMap, q));
+                System.out.printf("%10d %10s %10d %12.3f %12.3f%n", size, q, hits, indexed, scanned);
+            }
+        }
+    }
+
+    // The keys BookSearchMap stored before the index: title, author, genre, year, date added
+    private static Map<String, List<Book>> scanMap(List<Book> books) {
+        Map<String, List<Book>> map = new HashMap<>();
+        for (Book b : books) {
+            for (String key : new String[]{b.getTitle(), b.getAuthor(), b.getGenre(),
+                    String.valueOf(b.getPublishingDate()), b.getDateAdded().toString()}) {
+                map.computeIfAbsent(key.toLowerCase(), k -> new ArrayList<>()).add(b);
+            }
+        }
+        return map;
+    }
+
+    private static Set<Book> scan(Map<String, List<Book>> map, String query) {
+        String lowerQuery = query.toLowerCase();
+        return map.entrySet().stream()
+                .filter(entry -> entry.getKey().contains(lowerQuery))
+                .flatMap(entry -> entry.getValue().stream())
+                .collect(Collectors.toSet());
+    }
+}
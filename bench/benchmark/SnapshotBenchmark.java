@@ -0,0 +1,57 @@
+package benchmark;
+
+import library.Book;
+import service.BookCSVHandler;
+import service.BookSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.List;
+
+// Startup load of the same library from books.csv (BookCSVHandler.loadFromCSV, which picks
+// the loader by file size) and from its binary snapshot (BookSnapshot.load), plus file sizes.
+//
+//   java -cp out benchmark.SnapshotBenchmark [sizes...]
+public class SnapshotBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = BenchSupport.sizes(args, 100_000, 500_000);
+        System.out.printf("%10s %10s %12s %10s %14s%n", "books", "CSV MB", "snapshot MB", "CSV ms", "snapshot ms");
+
+        for (int size : sizes) {
+            File dir = Files.createTempDirectory("bench-snapshot").toFile();
+            String csv = new File(dir, "books.csv").getPath();
+            try {
+                BookCSVHandler.saveToCSV(BenchSupport.books(size, 13), csv);
+                BookSnapshot.write(BookCSVHandler.loadFromCSV(csv), csv, BookSnapshot.Stamp.of(csv));
+
+                List<Book> fromSnapshot = BookSnapshot.load(csv);
+                if (fromSnapshot == null || fromSnapshot.size() != size) throw new AssertionError("Snapshot not loaded");
+
+                double csvMs = BenchSupport.medianMillis(2, 5, () -> {
+                    try {
+                        BenchSupport.sink = BookCSVHandler.loadFromCSV(csv);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                double snapshotMs = BenchSupport.medianMillis(2, 5, () -> {
+                    try {
+                        BenchSupport.sink = BookSnapshot.load(csv);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                long snapshotBytes = new File(csv + ".snapshot").length();
+                System.out.printf("%10d %10.1f %12.1f %10.1f %14.1f%n", size, new File(csv).length() / 1048576.0,
+                        snapshotBytes / 1048576.0, csvMs, snapshotMs);
+            } finally {
+                File[] files = dir.listFiles();
+                if (files != null) for (File f : files) f.delete();
+                dir.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import algorithm.BookAlgorithm;
+import algorithm.BookSortEngine;
+import library.Book;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Sorting a whole library per SortField: BookSortEngine (int[] permutation over precomputed
+// keys, sequential and fork-join) versus the List-copying BookAlgorithm.mergeSort with the
+// case-insensitive Comparator it used before. Every run sorts a fresh copy of the same
+// shuffled list, and the engine's output is checked against the old sort's.
+//
+//   java -cp out benchmark.SortBenchmark [sizes...]
+public class SortBenchmark {
+
+    public static void main(String[] args) {
+        int[] sizes = BenchSupport.sizes(args, 100_000, 500_000);
+        System.out.printf("%10s %16s %12s %12s %12s%n", "books", "field", "old ms", "engine ms", "parallel ms");
+
+        for (int size : sizes) {
+            List<Book> books = BenchSupport.books(size, 7);
+            for (BookAlgorithm.SortField field : BookAlgorithm.SortField.values()) {
+                Comparator<Book> old = oldComparator(field);
+
+                List<Book> expected = new ArrayList<>(books);
+                BookAlgorithm.mergeSort(expected, old);
+                List<Book> actual = new ArrayList<>(books);
+                BookSortEngine.sort(actual, field, true, false);
+                if (!actual.equals(expected)) throw new AssertionError("Different order for " + field);
+
+                double oldMs = BenchSupport.medianMillis(2, 5, () -> {
+                    List<Book> copy = new ArrayList<>(books);
+                    BookAlgorithm.mergeSort(copy, old);
+                    BenchSupport.sink = copy;
+                });
+                double engineMs = BenchSupport.medianMillis(2, 5, () -> {
+                    List<Book> copy = new ArrayList<>(books);
+                    BookSortEngine.sort(copy, field, true, false);
+                    BenchSupport.sink = copy;
+                });
+                double parallelMs = BenchSupport.medianMillis(2, 5, () -> {
+                    List<Book> copy = new ArrayList<>(books);
+                    BookSortEngine.sort(copy, field, true, true);
+                    BenchSupport.sink = copy;
+                });
+                System.out.printf("%10d %16s %12.1f %12.1f %12.1f%n", size, field, oldMs, engineMs, parallelMs);
+            }
+        }
+    }
+
+    // What BookAlgorithm sorted with before BookSortEngine
+    private static Comparator<Book> oldComparator(BookAlgorithm.SortField field) {
+        switch (field) {
+            case AUTHOR: return Comparator.comparing(Book::getAuthor, String.CASE_INSENSITIVE_ORDER);
+            case GENRE: return Comparator.comparing(Book::getGenre, String.CASE_INSENSITIVE_ORDER);
+            case PUBLISHING_DATE: return Comparator.comparingInt(Book::getPublishingDate);
+            case DATE_ADDED: return Comparator.comparing(Book::getDateAdded);
+            case TITLE:
+            default: return Comparator.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER);
+        }
+    }
+}
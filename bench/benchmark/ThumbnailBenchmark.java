@@ -0,0 +1,89 @@
+package benchmark;
+
+import util.ThumbnailDecoder;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+// Decoding a 50x70 cover thumbnail from a large JPEG and PNG: ThumbnailDecoder (source
+// subsampling plus one bicubic draw) versus the old ImageIO.read + getScaledInstance
+// (SCALE_SMOOTH), drawn into an image so the lazy scaling actually runs. Also prints how
+// many pixels each path decodes, which is what sets its peak memory.
+//
+//   java -Djava.awt.headless=true -cp out benchmark.ThumbnailBenchmark [width height]
+public class ThumbnailBenchmark {
+
+    private static final int THUMB_WIDTH = 50;
+    private static final int THUMB_HEIGHT = 70;
+
+    public static void main(String[] args) throws IOException {
+        int width = args.length >= 2 ? Integer.parseInt(args[0]) : 3000;
+        int height = args.length >= 2 ? Integer.parseInt(args[1]) : 4200;
+        BufferedImage source = cover(width, height);
+
+        System.out.printf("%6s %12s %10s %14s %14s %16s%n", "format", "size", "file MB",
+                "old ms", "decoder ms", "decoded pixels");
+        for (String format : new String[]{"jpg", "png"}) {
+            File file = File.createTempFile("bench-cover", "." + format);
+            try {
+                ImageIO.write(source, format, file);
+
+                double oldMs = BenchSupport.medianMillis(1, 5, () -> BenchSupport.sink = oldThumbnail(file));
+                double decoderMs = BenchSupport.medianMillis(1, 5, () -> {
+                    try {
+                        BenchSupport.sink = ThumbnailDecoder.decode(file, THUMB_WIDTH, THUMB_HEIGHT);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                // Same subsampling step ThumbnailDecoder picks (2x headroom over the target)
+                int step = Math.max(1, Math.min(width / (THUMB_WIDTH * 2), height / (THUMB_HEIGHT * 2)));
+                long subsampled = (long) ((width + step - 1) / step) * ((height + step - 1) / step);
+
+                System.out.printf("%6s %12s %10.1f %14.1f %14.1f %7d / %-8d%n", format, width + "x" + height,
+                        file.length() / 1048576.0, oldMs, decoderMs, (long) width * height, subsampled);
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    // ImageIO.read + getScaledInstance(SCALE_SMOOTH), as CoverImageUtil did before
+    private static BufferedImage oldThumbnail(File file) {
+        try {
+            BufferedImage original = ImageIO.read(file);
+            Image scaled = original.getScaledInstance(THUMB_WIDTH, THUMB_HEIGHT, Image.SCALE_SMOOTH);
+            BufferedImage out = new BufferedImage(THUMB_WIDTH, THUMB_HEIGHT, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = out.createGraphics();
+            g.drawImage(scaled, 0, 0, null);
+            g.dispose();
+            return out;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // A photo-like cover: gradients, shapes and some noise, so neither format compresses it away
+    private static BufferedImage cover(int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(30, 60, 120), width, height, new Color(220, 180, 90)));
+        g.fillRect(0, 0, width, height);
+        Random random = new Random(19);
+        for (int i = 0; i < 400; i++) {
+            g.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256), 120));
+            g.fillOval(random.nextInt(width), random.nextInt(height), 50 + random.nextInt(400), 50 + random.nextInt(400));
+        }
+        g.dispose();
+        for (int i = 0; i < width * height / 8; i++) {
+            int x = random.nextInt(width), y = random.nextInt(height);
+            img.setRGB(x, y, img.getRGB(x, y) ^ random.nextInt(0x101010));
+        }
+        return img;
+    }
+}
@@ -11,37 +11,15 @@ public class BookAlgorithm {
         TITLE, AUTHOR, GENRE, PUBLISHING_DATE, DATE_ADDED
     }
 
+    // Sorts on precomputed keys over an int[] permutation, see BookSortEngine.
+    // Large lists switch to the fork-join sort on their own (BookSortEngine.setParallelThreshold).
     public static void mergeSort(List<Book> books, SortField field, boolean ascending) {
-        Comparator<Book> cmp = getComparator(field);
-
-        if (!ascending) {
-            cmp = cmp.reversed();
-        }
-
-        mergeSort(books, cmp);
+        BookSortEngine.sort(books, field, ascending);
     }
 
-    private static Comparator<Book> getComparator(SortField field) {
-        switch (field) {
-            case AUTHOR:
-                return Comparator.comparing(Book::getAuthor,
-                        String.CASE_INSENSITIVE_ORDER);
-
-            case GENRE:
-                return Comparator.comparing(Book::getGenre,
-                        String.CASE_INSENSITIVE_ORDER);
-
-            case PUBLISHING_DATE:
-                return Comparator.comparingInt(Book::getPublishingDate);
-
-            case DATE_ADDED:
-                return Comparator.comparing(Book::getDateAdded);
-
-            case TITLE:
-            default:
-                return Comparator.comparing(Book::getTitle,
-                        String.CASE_INSENSITIVE_ORDER);
-        }
+    // Always fork-join, whatever the list size; same stable order as mergeSort
+    public static void parallelMergeSort(List<Book> books, SortField field, boolean ascending) {
+        BookSortEngine.sort(books, field, ascending, true);
     }
 
     public static void mergeSort(List<Book> list, Comparator<Book> cmp) {
@@ -0,0 +1,54 @@
+package algorithm;
+
+import library.Book;
+import library.BookLibraryListener;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+// Answers the search bar: index lookup for the matches, then the maintained sort order
+// for the current SortField. Not thread-safe: SearchPipeline confines it to its worker
+// thread and hands it the library events there, in order with the queries.
+public class BookQueryEngine implements BookLibraryListener {
+
+    // Title, author, genre and year keys, lowercased once when a book is indexed
+    private final BookSearchMap index = new BookSearchMap(false);
+
+    // Every book kept sorted by every SortField
+    private final BookSortIndex sortIndex = new BookSortIndex();
+
+    public List<Book> query(String query, BookAlgorithm.SortField field, boolean ascending) {
+        String trimmed = query.trim();
+        Set<Book> matches = trimmed.isEmpty() ? null : index.matches(trimmed);
+
+        // A newer query interrupts this one; skip the ordering if nobody wants the result
+        if (Thread.currentThread().isInterrupted()) throw new CancellationException();
+
+        return sortIndex.ordered(matches, field, ascending);
+    }
+
+    // LIBRARY EVENTS
+    @Override
+    public void bookAdded(Book book) {
+        index.add(book);
+        sortIndex.add(book);
+    }
+
+    @Override
+    public void bookRemoved(Book book) {
+        index.remove(book);
+        sortIndex.remove(book);
+    }
+
+    @Override
+    public void bookUpdated(Book book) {
+        index.update(book);
+        sortIndex.update(book);
+    }
+
+    @Override
+    public void libraryReset(List<Book> books) {
+        index.libraryReset(books);
+        sortIndex.reset(books);
+    }
+}
@@ -1,45 +1,189 @@
 package algorithm;
 
 import library.Book;
+import library.BookLibraryListener;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
-public class BookSearchMap {
+public class BookSearchMap implements BookLibraryListener {
 
-    private HashMap<String, List<Book>> bookMap;
+    // Longest n-gram kept in the index; shorter queries use their own 1- or 2-gram posting list
+    private static final int MAX_GRAM = 3;
 
-    public BookSearchMap(List<Book> books) {
+    private HashMap<String, Set<Book>> bookMap;
+
+    // The app's search bar doesn't match on the date added, the classic map does
+    private final boolean indexDateAdded;
+
+    // Keys each book was stored under, so an edit can be undone after the setters already ran
+    private final HashMap<Book, String[]> indexedKeys = new HashMap<>();
+
+    // Every distinct key gets an int id so posting lists can be plain int arrays.
+    // When a key's last book goes, its slot becomes null and each of its posting lists
+    // counts one dead id; a list is compacted once half of it is dead, and all ids are
+    // renumbered once most slots are dead, so removals cost O(1) amortized per gram.
+    private final List<String> keys = new ArrayList<>();
+    private final HashMap<String, Integer> keyIds = new HashMap<>();
+    private int deadKeys;
+
+    // n-gram -> ids of the keys containing it, in ascending order
+    private final HashMap<String, Posting> gramIndex = new HashMap<>();
+
+    public BookSearchMap() {
+        this(true);
+    }
+
+    public BookSearchMap(boolean indexDateAdded) {
+        this.indexDateAdded = indexDateAdded;
         bookMap = new HashMap<>();
+    }
+
+    public BookSearchMap(List<Book> books) {
+        this();
+        for (Book b : books) add(b);
+    }
+
+    public void add(Book b) {
+        // store under multiple keys for easy searching; the book's cached keys are never
+        // modified in place, so they double as the snapshot remove() needs
+        String[] bookKeys = b.getSearchKeys();
+        if (indexDateAdded) {
+            bookKeys = Arrays.copyOf(bookKeys, 5);
+            bookKeys[4] = b.getDateAdded().toString().toLowerCase();
+        }
 
-        for (Book b : books) {
-            // store under multiple keys for easy searching
-            addToMap(b.getTitle(), b);
-            addToMap(b.getAuthor(), b);
-            addToMap(b.getGenre(), b);
-            addToMap(String.valueOf(b.getPublishingDate()), b);
-            addToMap(b.getDateAdded().toString(), b);
+        indexedKeys.put(b, bookKeys);
+        for (String key : bookKeys) addToMap(key, b);
+    }
+
+    public void remove(Book b) {
+        String[] bookKeys = indexedKeys.remove(b);
+        if (bookKeys == null) return;
+
+        for (String key : bookKeys) {
+            Set<Book> bucket = bookMap.get(key);
+            if (bucket != null && bucket.remove(b) && bucket.isEmpty()) {
+                bookMap.remove(key);
+                unindexGrams(key);
+            }
         }
     }
 
+    // Re-files a book under its current field values
+    public void update(Book b) {
+        remove(b);
+        add(b);
+    }
+
+    public void clear() {
+        bookMap.clear();
+        indexedKeys.clear();
+        keys.clear();
+        keyIds.clear();
+        gramIndex.clear();
+        deadKeys = 0;
+    }
+
     private void addToMap(String key, Book book) {
-        String lower = key.toLowerCase();
-        bookMap.computeIfAbsent(lower, k -> new ArrayList<>()).add(book);
+        Set<Book> bucket = bookMap.get(key);
+        if (bucket == null) {
+            bucket = new LinkedHashSet<>();
+            bookMap.put(key, bucket);
+            indexGrams(key);
+        }
+        bucket.add(book);
     }
 
-    // Inside BookSearchMap.java
-    public List<Book> search(String query, BookAlgorithm.SortField sortField, boolean ascending) {
+    // Every 1..MAX_GRAM long substring of a new key points back to the key's id
+    private void indexGrams(String key) {
+        int id = keys.size();
+        keys.add(key);
+        keyIds.put(key, id);
+
+        for (int n = 1; n <= MAX_GRAM; n++) {
+            for (int i = 0; i + n <= key.length(); i++) {
+                gramIndex.computeIfAbsent(key.substring(i, i + n), g -> new Posting()).add(id);
+            }
+        }
+    }
+
+    // The key has no books left: free its id and drop it from its posting lists
+    private void unindexGrams(String key) {
+        Integer id = keyIds.remove(key);
+        if (id == null) return;
+        keys.set(id, null);
+        deadKeys++;
+
+        HashSet<String> seen = new HashSet<>();
+        for (int n = 1; n <= MAX_GRAM; n++) {
+            for (int i = 0; i + n <= key.length(); i++) {
+                String gram = key.substring(i, i + n);
+                if (!seen.add(gram)) continue; // a repeated gram is in the list only once
+
+                Posting posting = gramIndex.get(gram);
+                if (posting == null) continue;
+                if (++posting.dead * 2 > posting.size) posting.compact(keys);
+                if (posting.size == 0) gramIndex.remove(gram);
+            }
+        }
+
+        if (deadKeys > 1024 && deadKeys > keyIds.size()) renumber();
+    }
+
+    // Packs the live keys into ids 0..n-1 and rebuilds the posting lists without dead ids
+    private void renumber() {
+        keys.clear();
+        keyIds.clear();
+        gramIndex.clear();
+        deadKeys = 0;
+        for (String key : bookMap.keySet()) indexGrams(key);
+    }
+
+    // Keys containing the query: only the shortest posting list of the query's n-grams is scanned
+    private List<String> matchingKeys(String lowerQuery) {
+        if (lowerQuery.isEmpty()) return keys;
+
+        int n = Math.min(MAX_GRAM, lowerQuery.length());
+        Posting shortest = null;
+
+        for (int i = 0; i + n <= lowerQuery.length(); i++) {
+            Posting posting = gramIndex.get(lowerQuery.substring(i, i + n));
+            if (posting == null) return List.of(); // some n-gram never occurs, so nothing can match
+            if (shortest == null || posting.size < shortest.size) shortest = posting;
+        }
+
+        List<String> result = new ArrayList<>(shortest.size);
+        for (int i = 0; i < shortest.size; i++) {
+            String key = keys.get(shortest.ids[i]);
+            if (key == null) continue; // dead, not compacted away yet
+            // Grams only narrow the candidates; longer queries still need the real substring check
+            if (lowerQuery.length() <= MAX_GRAM || key.contains(lowerQuery)) result.add(key);
+        }
+        return result;
+    }
+
+    // Every book with at least one key containing the query, unsorted
+    public Set<Book> matches(String query) {
         final String lowerQuery = query.toLowerCase(); // Normalize once
 
-        // Use a HashSet to avoid O(n^2) duplicate checks
-        Set<Book> uniqueResults = bookMap.entrySet().stream()
-                .filter(entry -> entry.getKey().contains(lowerQuery))
-                .flatMap(entry -> entry.getValue().stream())
-                .collect(Collectors.toSet()); // HashSet handles uniqueness in O(1)
+        // Use a Set to avoid O(n^2) duplicate checks
+        Set<Book> uniqueResults = new LinkedHashSet<>();
+        for (String key : matchingKeys(lowerQuery)) {
+            if (key == null) continue; // a dead slot in the full key list
+            Set<Book> bucket = bookMap.get(key);
+            if (bucket != null) uniqueResults.addAll(bucket);
+        }
+        return uniqueResults;
+    }
 
-        List<Book> sortedList = new ArrayList<>(uniqueResults);
+    // Inside BookSearchMap.java
+    public List<Book> search(String query, BookAlgorithm.SortField sortField, boolean ascending) {
+        List<Book> sortedList = new ArrayList<>(matches(query));
 
         if (sortField != null) {
             BookAlgorithm.mergeSort(sortedList, sortField, ascending);
@@ -48,5 +192,43 @@ public class BookSearchMap {
         return sortedList;
     }
 
+    // LIBRARY EVENTS
+    @Override
+    public void bookAdded(Book book) { add(book); }
+
+    @Override
+    public void bookRemoved(Book book) { remove(book); }
+
+    @Override
+    public void bookUpdated(Book book) { update(book); }
+
+    @Override
+    public void libraryReset(List<Book> books) {
+        clear();
+        for (Book b : books) add(b);
+    }
+
+    // Growable, duplicate-free list of ascending key ids, some of which may be dead
+    private static class Posting {
+        int[] ids = new int[4];
+        int size;
+        int dead;
 
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) return; // gram repeats inside the same key
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        // Drops the ids whose key slot is null, keeping the rest in order
+        void compact(List<String> keys) {
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                if (keys.get(ids[i]) != null) ids[live++] = ids[i];
+            }
+            size = live;
+            dead = 0;
+            if (ids.length > 16 && size < ids.length / 4) ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+        }
+    }
 }
@@ -0,0 +1,259 @@
+package algorithm;
+
+import library.Book;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Stable merge sort over an int[] permutation instead of the books themselves.
+// Sort keys are pulled out of every book once (folded strings, raw ints/longs),
+// and the whole sort shares a single scratch buffer, so no per-level lists are copied.
+public class BookSortEngine {
+
+    // Ranges this small are finished with insertion sort (still stable)
+    private static final int INSERTION_CUTOFF = 16;
+
+    // Lists at least this long are sorted on the common ForkJoinPool
+    private static volatile int parallelThreshold = 1 << 16;
+
+    // Inside the parallel sort, ranges this small are no longer split into new tasks
+    private static volatile int sequentialCutoff = 1 << 13;
+
+    public static void setParallelThreshold(int size) { parallelThreshold = Math.max(2, size); }
+    public static int getParallelThreshold() { return parallelThreshold; }
+
+    public static void setSequentialCutoff(int size) { sequentialCutoff = Math.max(INSERTION_CUTOFF, size); }
+    public static int getSequentialCutoff() { return sequentialCutoff; }
+
+    // Picks the parallel sort on its own for large lists on multi-core machines
+    public static void sort(List<Book> books, BookAlgorithm.SortField field, boolean ascending) {
+        sort(books, field, ascending, useParallel(books.size()));
+    }
+
+    public static void sort(List<Book> books, BookAlgorithm.SortField field, boolean ascending, boolean parallel) {
+        int n = books.size();
+        if (n <= 1) return;
+
+        Book[] items = books.toArray(new Book[0]);
+        int[] order = sortedOrder(items, field, ascending, parallel);
+
+        for (int i = 0; i < n; i++) books.set(i, items[order[i]]);
+    }
+
+    // Positions of items in sorted order
+    public static int[] sortedOrder(Book[] items, BookAlgorithm.SortField field, boolean ascending) {
+        return sortedOrder(items, field, ascending, useParallel(items.length));
+    }
+
+    public static int[] sortedOrder(Book[] items, BookAlgorithm.SortField field, boolean ascending, boolean parallel) {
+        return sortedOrder(items, field, ascending, parallel, null);
+    }
+
+    // Equal keys ordered by ties (ascending either way) rather than by position in items,
+    // for callers whose items aren't already in the order ties should keep
+    static int[] sortedOrder(Book[] items, BookAlgorithm.SortField field, boolean ascending, long[] ties) {
+        return sortedOrder(items, field, ascending, useParallel(items.length), ties);
+    }
+
+    private static int[] sortedOrder(Book[] items, BookAlgorithm.SortField field, boolean ascending,
+                                     boolean parallel, long[] ties) {
+        int n = items.length;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+
+        if (n > 1) {
+            SortKeys keys = SortKeys.of(items, field, ascending, parallel);
+            if (ties != null) keys = keys.thenBy(ties);
+            int[] scratch = new int[n];
+            if (parallel) {
+                ForkJoinPool.commonPool().invoke(new ParallelMergeSort(order, scratch, 0, n, keys, sequentialCutoff));
+            } else {
+                mergeSort(order, scratch, 0, n, keys);
+            }
+        }
+        return order;
+    }
+
+    private static boolean useParallel(int size) {
+        return size >= parallelThreshold && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    // Sorts order[lo, hi) using scratch[lo, hi) as the merge buffer
+    static void mergeSort(int[] order, int[] scratch, int lo, int hi, SortKeys keys) {
+        if (hi - lo <= INSERTION_CUTOFF) {
+            insertionSort(order, lo, hi, keys);
+            return;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        mergeSort(order, scratch, lo, mid, keys);
+        mergeSort(order, scratch, mid, hi, keys);
+        merge(order, scratch, lo, mid, hi, keys);
+    }
+
+    static void merge(int[] order, int[] scratch, int lo, int mid, int hi, SortKeys keys) {
+        // Halves already in order: nothing to merge
+        if (keys.compare(order[mid - 1], order[mid]) <= 0) return;
+
+        System.arraycopy(order, lo, scratch, lo, mid - lo);
+
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi) {
+            // <= keeps equal keys in their original order
+            if (keys.compare(scratch[i], order[j]) <= 0) {
+                order[k++] = scratch[i++];
+            } else {
+                order[k++] = order[j++];
+            }
+        }
+        while (i < mid) order[k++] = scratch[i++];
+        // whatever is left of the right half is already in place
+    }
+
+    private static void insertionSort(int[] order, int lo, int hi, SortKeys keys) {
+        for (int i = lo + 1; i < hi; i++) {
+            int current = order[i];
+            int j = i - 1;
+            while (j >= lo && keys.compare(order[j], current) > 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = current;
+        }
+    }
+
+    // Same split-and-merge as mergeSort, with both halves sorted as separate fork-join tasks.
+    // Tasks own disjoint ranges of order and scratch, so one shared scratch buffer is enough,
+    // and a stable merge sort gives the same result however the ranges are split.
+    private static class ParallelMergeSort extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] order;
+        private final int[] scratch;
+        private final int lo;
+        private final int hi;
+        private final SortKeys keys;
+        private final int cutoff;
+
+        ParallelMergeSort(int[] order, int[] scratch, int lo, int hi, SortKeys keys, int cutoff) {
+            this.order = order;
+            this.scratch = scratch;
+            this.lo = lo;
+            this.hi = hi;
+            this.keys = keys;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= cutoff) {
+                mergeSort(order, scratch, lo, hi, keys);
+                return;
+            }
+
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new ParallelMergeSort(order, scratch, lo, mid, keys, cutoff),
+                      new ParallelMergeSort(order, scratch, mid, hi, keys, cutoff));
+            merge(order, scratch, lo, mid, hi, keys);
+        }
+    }
+
+    // Precomputed keys for one SortField, compared by item position
+    abstract static class SortKeys {
+        private final boolean ascending;
+
+        SortKeys(boolean ascending) {
+            this.ascending = ascending;
+        }
+
+        final int compare(int a, int b) {
+            return ascending ? compareAscending(a, b) : compareAscending(b, a);
+        }
+
+        abstract int compareAscending(int a, int b);
+
+        final SortKeys thenBy(long[] ties) {
+            SortKeys first = this;
+            return new SortKeys(true) {
+                int compareAscending(int a, int b) {
+                    int c = first.compare(a, b);
+                    return c != 0 ? c : Long.compare(ties[a], ties[b]);
+                }
+            };
+        }
+
+        static SortKeys of(Book[] items, BookAlgorithm.SortField field, boolean ascending, boolean parallel) {
+            int n = items.length;
+            switch (field) {
+                case PUBLISHING_DATE: {
+                    int[] years = new int[n];
+                    for (int i = 0; i < n; i++) years[i] = items[i].getPublishingDate();
+                    return new SortKeys(ascending) {
+                        int compareAscending(int a, int b) { return Integer.compare(years[a], years[b]); }
+                    };
+                }
+                case DATE_ADDED: {
+                    long[] added = new long[n];
+                    for (int i = 0; i < n; i++) added[i] = items[i].getDateAdded().getTime();
+                    return new SortKeys(ascending) {
+                        int compareAscending(int a, int b) { return Long.compare(added[a], added[b]); }
+                    };
+                }
+                case AUTHOR:
+                case GENRE: {
+                    String[] text = textKeys(items, field, parallel);
+                    if (!shareStrings(items)) return textOrder(text, ascending); // ids from different dictionaries mean nothing together
+
+                    // Few distinct values: equal dictionary ids settle most comparisons as ints
+                    int[] ids = new int[n];
+                    boolean author = field == BookAlgorithm.SortField.AUTHOR;
+                    if (parallel) {
+                        Arrays.parallelSetAll(ids, i -> author ? items[i].getAuthorId() : items[i].getGenreId());
+                    } else {
+                        for (int i = 0; i < n; i++) ids[i] = author ? items[i].getAuthorId() : items[i].getGenreId();
+                    }
+                    return new SortKeys(ascending) {
+                        int compareAscending(int a, int b) { return ids[a] == ids[b] ? 0 : text[a].compareTo(text[b]); }
+                    };
+                }
+                default:
+                    return textOrder(textKeys(items, field, parallel), ascending);
+            }
+        }
+
+        private static SortKeys textOrder(String[] text, boolean ascending) {
+            return new SortKeys(ascending) {
+                int compareAscending(int a, int b) { return text[a].compareTo(text[b]); }
+            };
+        }
+
+        // Books cache their folded titles, but the first sort still folds every one,
+        // so it is worth spreading over the pool too
+        private static String[] textKeys(Book[] items, BookAlgorithm.SortField field, boolean parallel) {
+            String[] text = new String[items.length];
+            if (parallel) {
+                Arrays.parallelSetAll(text, i -> keyOf(items[i], field));
+            } else {
+                for (int i = 0; i < text.length; i++) text[i] = keyOf(items[i], field);
+            }
+            return text;
+        }
+
+        private static boolean shareStrings(Book[] items) {
+            for (Book b : items) {
+                if (b.getStrings() != items[0].getStrings()) return false;
+            }
+            return true;
+        }
+
+        private static String keyOf(Book book, BookAlgorithm.SortField field) {
+            switch (field) {
+                case AUTHOR: return book.getAuthorKey();
+                case GENRE: return book.getGenreKey();
+                case TITLE:
+                default: return book.getTitleKey();
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package algorithm;
+
+import library.Book;
+import library.StringDictionary;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Keeps the library sorted by every SortField at once, so a sort toggle is a walk
+// over an existing order instead of a new O(n log n) sort. Adding, removing or
+// editing one book costs O(log n) per field.
+public class BookSortIndex {
+
+    // Below this many matches, sorting the matches beats walking the whole stored order
+    private static final int SMALL_MATCH_FACTOR = 20;
+
+    private final Map<BookAlgorithm.SortField, TreeSet<Entry>> orders = new EnumMap<>(BookAlgorithm.SortField.class);
+    private final Map<Book, Entry> entries = new HashMap<>();
+
+    // Library position stand-in: equal keys keep the order books were added in
+    private long nextSeq;
+
+    public BookSortIndex() {
+        for (BookAlgorithm.SortField field : BookAlgorithm.SortField.values()) {
+            orders.put(field, new TreeSet<>(ascendingOrder(field)));
+        }
+    }
+
+    public void add(Book book) {
+        insert(new Entry(book, nextSeq++));
+    }
+
+    public void remove(Book book) {
+        Entry entry = entries.remove(book);
+        if (entry == null) return;
+        for (TreeSet<Entry> order : orders.values()) order.remove(entry);
+    }
+
+    // Entries hold a snapshot of the keys, so the old position can still be found after the setters ran
+    public void update(Book book) {
+        Entry old = entries.get(book);
+        if (old == null) return;
+        remove(book);
+        insert(new Entry(book, old.seq));
+    }
+
+    public void reset(Collection<Book> books) {
+        entries.clear();
+        for (TreeSet<Entry> order : orders.values()) order.clear();
+        nextSeq = 0;
+        for (Book b : books) add(b);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void insert(Entry entry) {
+        entries.put(entry.book, entry);
+        for (TreeSet<Entry> order : orders.values()) order.add(entry);
+    }
+
+    /**
+     * Books in sorted order, limited to matches (null means every book).
+     * Same result as a stable sort of the matches taken in library order.
+     */
+    public List<Book> ordered(Set<Book> matches, BookAlgorithm.SortField field, boolean ascending) {
+        if (matches != null && (long) matches.size() * SMALL_MATCH_FACTOR < entries.size()) {
+            return sortMatches(matches, field, ascending);
+        }
+
+        TreeSet<Entry> order = orders.get(field);
+        List<Book> result = new ArrayList<>(matches == null ? order.size() : matches.size());
+
+        if (ascending) {
+            for (Entry e : order) {
+                if (matches == null || matches.contains(e.book)) result.add(e.book);
+            }
+            return result;
+        }
+
+        // Walking backwards also reverses books with equal keys; flip each such run back
+        // so ties stay in library order, like the stable sort with a reversed comparator
+        Comparator<Entry> keyOrder = keyOrder(field);
+        Entry runKey = null;
+        int runStart = 0;
+
+        for (Iterator<Entry> it = order.descendingIterator(); it.hasNext(); ) {
+            Entry e = it.next();
+            if (matches != null && !matches.contains(e.book)) continue;
+
+            if (runKey == null || keyOrder.compare(runKey, e) != 0) {
+                reverse(result, runStart, result.size());
+                runKey = e;
+                runStart = result.size();
+            }
+            result.add(e.book);
+        }
+        reverse(result, runStart, result.size());
+        return result;
+    }
+
+    // Same engine as a full sort, with the stored positions breaking ties
+    private List<Book> sortMatches(Set<Book> matches, BookAlgorithm.SortField field, boolean ascending) {
+        Book[] matched = new Book[matches.size()];
+        long[] seqs = new long[matched.length];
+        int n = 0;
+        for (Book b : matches) {
+            Entry e = entries.get(b);
+            if (e == null) continue;
+            matched[n] = b;
+            seqs[n++] = e.seq;
+        }
+        if (n < matched.length) {
+            matched = Arrays.copyOf(matched, n);
+            seqs = Arrays.copyOf(seqs, n);
+        }
+
+        int[] order = BookSortEngine.sortedOrder(matched, field, ascending, seqs);
+
+        List<Book> result = new ArrayList<>(n);
+        for (int i : order) result.add(matched[i]);
+        return result;
+    }
+
+    private static void reverse(List<Book> list, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            Book tmp = list.get(i);
+            list.set(i, list.get(j));
+            list.set(j, tmp);
+        }
+    }
+
+    private static Comparator<Entry> ascendingOrder(BookAlgorithm.SortField field) {
+        return keyOrder(field).thenComparingLong(e -> e.seq);
+    }
+
+    private static Comparator<Entry> keyOrder(BookAlgorithm.SortField field) {
+        switch (field) {
+            // Same id in the same dictionary means same text, no need to look at the characters
+            case AUTHOR: return (a, b) -> a.authorId == b.authorId && a.strings == b.strings ? 0 : a.author.compareTo(b.author);
+            case GENRE: return (a, b) -> a.genreId == b.genreId && a.strings == b.strings ? 0 : a.genre.compareTo(b.genre);
+            case PUBLISHING_DATE: return (a, b) -> Integer.compare(a.year, b.year);
+            case DATE_ADDED: return (a, b) -> Long.compare(a.added, b.added);
+            case TITLE:
+            default: return (a, b) -> a.title.compareTo(b.title);
+        }
+    }
+
+    // Sort keys of one book as they were when it was last indexed
+    private static class Entry {
+        final Book book;
+        final long seq;
+        final String title;
+        final String author;
+        final String genre;
+        final StringDictionary strings;
+        final int authorId;
+        final int genreId;
+        final int year;
+        final long added;
+
+        Entry(Book book, long seq) {
+            this.book = book;
+            this.seq = seq;
+            this.title = book.getTitleKey();
+            this.author = book.getAuthorKey();
+            this.genre = book.getGenreKey();
+            this.strings = book.getStrings();
+            this.authorId = book.getAuthorId();
+            this.genreId = book.getGenreId();
+            this.year = book.getPublishingDate();
+            this.added = book.getDateAdded().getTime();
+        }
+    }
+}
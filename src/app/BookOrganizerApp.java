@@ -1,10 +1,15 @@
 package app;
 
+import algorithm.BookAlgorithm;
+import algorithm.BookQueryEngine;
 import library.Book;
 import library.BookLibrary;
 import dialog.BookDetailDialog;
 import dialog.BookDialog;
 import service.BookCSVHandler;
+import service.BookJournal;
+import service.LazyCSVLoader;
+import service.SearchPipeline;
 import ui.BookTablePanel;
 import dialog.TutorialStep;
 import dialog.HowToUseDialog;
@@ -18,7 +23,6 @@ import java.awt.event.*;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class BookOrganizerApp extends JFrame {
 
@@ -31,8 +35,15 @@ public class BookOrganizerApp extends JFrame {
 
     // DATA
     private BookLibrary library;
+    private BookQueryEngine queryEngine;
+    private SearchPipeline searchPipeline;
+    private final BookJournal journal = BookCSVHandler.openJournal(); // edits since the last CSV save
     private List<Book> filteredBooks = new ArrayList<>();
     private List<Book> pagedBooks = new ArrayList<>();
+    private boolean loading; // the rest of the library is still arriving from the CSV
+    private boolean loadFailed; // only part of the library is loaded; nothing may be saved over the CSV
+    private boolean continuousScroll; // every result in one scrolling table instead of pages
+    private boolean saving; // a CSV save is running; saves and reloads wait for it
 
     private int currentPage = 1;
     private final int rowsPerPage = 25; // Updated to 25 rows per page
@@ -40,13 +51,20 @@ public class BookOrganizerApp extends JFrame {
     private String currentSortField = "Title";
     private String selectedField = "Title";
 
+    // Query/sort of the last request and of the results on screen; the page only resets when they differ
+    private String requestedView = "";
+    private String shownView;
+
     // UI
     private JTextField searchField;
     private JLabel statusLabel;
     private JButton prevButton;
     private JButton nextButton;
     private JPanel pageNumbersPanel;
+    private JPanel paginationPanel;
     private BookTablePanel bookTablePanel;
+    private JMenuItem saveItem;
+    private JMenuItem loadItem;
 
 
 
@@ -54,6 +72,8 @@ public class BookOrganizerApp extends JFrame {
     // CONSTRUCTOR
     public BookOrganizerApp() {
         library = new BookLibrary();
+        queryEngine = new BookQueryEngine();
+        searchPipeline = new SearchPipeline(library, queryEngine, this::showResults);
 
         // Init table panel first (needed for menu toggle)
         bookTablePanel = new BookTablePanel();
@@ -67,15 +87,99 @@ public class BookOrganizerApp extends JFrame {
         applyFiltersAndSort();
     }
 
+    // Last saved CSV (or its binary snapshot) plus every edit journaled since
+    private List<Book> loadLibrary() throws IOException {
+        List<Book> books = BookCSVHandler.loadLibraryFile();
+        journal.replay(books);
+        return books;
+    }
+
+    // The first page is parsed and shown right away; everything else loads in the background
     private void loadCSVOnLaunch() {
         try {
             BookCSVHandler.initCSV();
-            library.setBooks(BookCSVHandler.loadFromCSV());
+            loadLazily();
         } catch (IOException e) {
+            loadFailed = true; // an empty library must never be saved over books.csv
             JOptionPane.showMessageDialog(this, e.getMessage());
         }
     }
 
+    // The worker takes the binary snapshot when it still matches the CSV; otherwise the rest
+    // of the CSV is indexed and appended in blocks while the table already shows what has
+    // arrived. Journaled edits apply to the whole file, so they wait until it is all here.
+    private void loadLazily() throws IOException {
+        LazyCSVLoader loader = BookCSVHandler.openLazyCSV();
+        List<Book> firstPage;
+        try {
+            firstPage = loader.readFirstRows(rowsPerPage);
+        } catch (IOException e) {
+            loader.close();
+            throw e;
+        }
+        library.setBooks(firstPage);
+        loading = true;
+
+        new SwingWorker<List<Book>, List<Book>>() {
+            private boolean fromSnapshot;
+
+            @Override
+            protected List<Book> doInBackground() throws IOException {
+                try (loader) {
+                    List<Book> snapshot = BookCSVHandler.loadSnapshot();
+                    if (snapshot != null) {
+                        fromSnapshot = true;
+                        return snapshot;
+                    }
+
+                    loader.indexRemaining();
+                    List<Book> parsed = new ArrayList<>((int) Math.min(Integer.MAX_VALUE - 8, firstPage.size() + loader.getRemainingRows()));
+                    parsed.addAll(firstPage);
+                    loader.forEachBlock(block -> {
+                        parsed.addAll(block);
+                        publish(block);
+                    });
+                    return parsed;
+                }
+            }
+
+            @Override
+            protected void process(List<List<Book>> blocks) {
+                for (List<Book> block : blocks) library.addBooks(block);
+                applyFiltersAndSort(); // same query, so the current page stays put
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    List<Book> books = new ArrayList<>(get());
+                    if (!fromSnapshot) BookCSVHandler.cacheSnapshot(books, loader.getStamp());
+
+                    if (journal.replay(books) > 0 || fromSnapshot) library.setBooks(books);
+                } catch (Exception e) {
+                    // Only part of the library is here: keep it read-only until a reload succeeds
+                    loadFailed = true;
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(BookOrganizerApp.this, "The library could not be loaded completely "
+                            + "and is read-only until it is loaded again from the menu.\n" + cause.getMessage());
+                }
+                loading = false;
+                applyFiltersAndSort();
+            }
+        }.execute();
+    }
+
+    // Edits and saves wait until a lazy load has finished, and stay off after a failed one
+    private boolean stillLoading() {
+        if (loading) {
+            JOptionPane.showMessageDialog(this, "The library is still loading, please try again in a moment.");
+        } else if (loadFailed) {
+            JOptionPane.showMessageDialog(this, "The library was not loaded completely, so it is read-only. "
+                    + "Use Load from CSV to try again.");
+        }
+        return loading || loadFailed;
+    }
+
 
 
     // UI SETUP
@@ -84,6 +188,10 @@ public class BookOrganizerApp extends JFrame {
         setSize(1200, 675);
         setLocationRelativeTo(null);
         setDefaultCloseOperation(EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) { searchPipeline.shutdown(); }
+        });
         getContentPane().setBackground(BACKGROUND_COLOR);
 
         ImageIcon icon = new ImageIcon(getClass().getResource("/resources/app_icon.png"));
@@ -163,9 +271,9 @@ public class BookOrganizerApp extends JFrame {
         });
 
         searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
-            public void insertUpdate(javax.swing.event.DocumentEvent e) { applyFiltersAndSort(); }
-            public void removeUpdate(javax.swing.event.DocumentEvent e) { applyFiltersAndSort(); }
-            public void changedUpdate(javax.swing.event.DocumentEvent e) { applyFiltersAndSort(); }
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { searchAsYouType(); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { searchAsYouType(); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { searchAsYouType(); }
         });
 
         JButton sortBtn = createSortButton();
@@ -205,9 +313,9 @@ public class BookOrganizerApp extends JFrame {
 
         JPopupMenu menu = new JPopupMenu();
 
-        JMenuItem saveItem = new JMenuItem("Save to CSV");
+        saveItem = new JMenuItem("Save to CSV");
         saveItem.addActionListener(e -> saveCSV());
-        JMenuItem loadItem = new JMenuItem("Load from CSV");
+        loadItem = new JMenuItem("Load from CSV");
         loadItem.addActionListener(e -> loadCSV());
         menu.add(saveItem);
         menu.add(loadItem);
@@ -218,7 +326,10 @@ public class BookOrganizerApp extends JFrame {
         menu.add(aboutItem);
 
         JMenuItem exitItem = new JMenuItem("Exit");
-        exitItem.addActionListener(e -> System.exit(0));
+        exitItem.addActionListener(e -> {
+            searchPipeline.shutdown();
+            System.exit(0);
+        });
         menu.add(exitItem);
 
         JMenuItem toggleViewItem = new JMenuItem("Switch to Simple View");
@@ -228,8 +339,14 @@ public class BookOrganizerApp extends JFrame {
                 toggleViewItem.setText(bookTablePanel.isBigPictureMode() ? "Switch to Simple View" : "Switch to Big Picture View");
             }
         });
+        JMenuItem toggleScrollItem = new JMenuItem("Switch to Continuous Scroll");
+        toggleScrollItem.addActionListener(e -> {
+            toggleContinuousScroll();
+            toggleScrollItem.setText(continuousScroll ? "Switch to Pages" : "Switch to Continuous Scroll");
+        });
         menu.addSeparator();
         menu.add(toggleViewItem);
+        menu.add(toggleScrollItem);
 
         menuBtn.addActionListener(e -> menu.show(menuBtn, 0, menuBtn.getHeight()));
         return menuBtn;
@@ -245,17 +362,56 @@ public class BookOrganizerApp extends JFrame {
 
     // CSV HANDLING
     private void saveCSV() {
-        try {
-            BookCSVHandler.saveToCSV(library.getBooks());
-            JOptionPane.showMessageDialog(this, "Books saved to CSV File! \n" + "File Location (C:/BookOrganizer/book.csv)");
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, e.getMessage());
-        }
+        if (saving || stillLoading()) return;
+        // Snapshot on the EDT, write on a worker so a large save never freezes the window
+        List<Book> snapshot = new ArrayList<>(library.getBooks());
+        BookJournal.Checkpoint checkpoint = journal.checkpoint(snapshot);
+        setSaving(true);
+        String previousStatus = statusLabel.getText();
+        statusLabel.setText("Saving " + snapshot.size() + " books...");
+
+        new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws IOException {
+                long start = System.nanoTime();
+                BookCSVHandler.saveToCSV(snapshot, journal, checkpoint);
+                journal.compact(checkpoint); // the CSV now holds those edits
+                return (System.nanoTime() - start) / 1_000_000;
+            }
+
+            @Override
+            protected void done() {
+                setSaving(false);
+                statusLabel.setText(previousStatus);
+                try {
+                    long millis = get();
+                    JOptionPane.showMessageDialog(BookOrganizerApp.this, "Books saved to CSV File! \n"
+                            + "File Location (C:/BookOrganizer/book.csv) \n"
+                            + "Saved " + snapshot.size() + " books in " + millis + " ms");
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(BookOrganizerApp.this, cause.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    // One save at a time: a second one could compact away records the first hasn't written
+    private void setSaving(boolean saving) {
+        this.saving = saving;
+        saveItem.setEnabled(!saving);
+        loadItem.setEnabled(!saving);
     }
 
     private void loadCSV() {
+        if (saving) return;
+        if (loading) {
+            stillLoading();
+            return;
+        }
         try {
-            library.setBooks(BookCSVHandler.loadFromCSV());
+            library.setBooks(loadLibrary());
+            loadFailed = false;
             applyFiltersAndSort();
             JOptionPane.showMessageDialog(this, "Books loaded from CSV FIle! \n" + "File Location (C:/BookOrganizer/book.csv)");
         } catch (IOException e) {
@@ -339,6 +495,7 @@ public class BookOrganizerApp extends JFrame {
 
         JPanel pagination = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 5));
         pagination.setOpaque(false);
+        paginationPanel = pagination;
 
         prevButton = new JButton("Previous");
         nextButton = new JButton("Next");
@@ -376,36 +533,57 @@ public class BookOrganizerApp extends JFrame {
         return btn;
     }
 
-    private void applyFiltersAndSort() {
-
-        String query = searchField.getText().trim().toLowerCase();
-        if (query.equals("search book here...")) {
-            query = "";
-        }
+    private String currentQuery() {
+        String query = searchField.getText().trim();
+        return query.equalsIgnoreCase("search book here...") ? "" : query;
+    }
 
-        final String finalQuery = query;
+    private BookAlgorithm.SortField currentField() {
+        return BookAlgorithm.SortField.valueOf(selectedField.toUpperCase().replace(" ", "_"));
+    }
 
-        filteredBooks = library.getBooks().stream()
-                .filter(b -> finalQuery.isEmpty() ||
-                        b.getTitle().toLowerCase().contains(finalQuery) ||
-                        b.getAuthor().toLowerCase().contains(finalQuery) ||
-                        b.getGenre().toLowerCase().contains(finalQuery) ||
-                        String.valueOf(b.getPublishingDate()).contains(finalQuery))
-                .collect(Collectors.toList());
+    // Typing is debounced and searched off the EDT
+    private void searchAsYouType() {
+        requestedView = currentQuery() + "|" + currentField() + "|" + ascending;
+        searchPipeline.submit(currentQuery(), currentField(), ascending);
+    }
 
-        algorithm.BookAlgorithm.SortField field = algorithm.BookAlgorithm.SortField
-                .valueOf(selectedField.toUpperCase().replace(" ", "_"));
-        algorithm.BookAlgorithm.mergeSort(filteredBooks, field, ascending);
+    private void applyFiltersAndSort() {
+        // Only the index matches get sorted, not the whole library
+        requestedView = currentQuery() + "|" + currentField() + "|" + ascending;
+        searchPipeline.submitNow(currentQuery(), currentField(), ascending);
+    }
 
-        currentPage = 1; // Reset to page 1 on search/sort
+    // Called on the EDT with the newest query's result only, which is always the last one requested
+    private void showResults(List<Book> results) {
+        filteredBooks = results;
+        if (!requestedView.equals(shownView)) currentPage = 1; // Reset to page 1 on a new search/sort
+        shownView = requestedView;
         updatePagination();
     }
 
 
 
     // PAGE
+    private void toggleContinuousScroll() {
+        continuousScroll = !continuousScroll;
+        paginationPanel.setVisible(!continuousScroll);
+        bookTablePanel.setContinuousScroll(continuousScroll);
+        updatePagination();
+    }
+
     private void updatePagination() {
         int total = filteredBooks.size();
+        if (continuousScroll) {
+            // The table model only reads the rows the viewport paints, so the whole list can go in
+            pagedBooks = filteredBooks;
+            bookTablePanel.refreshTable(pagedBooks);
+            statusLabel.setText(total + " books total"
+                    + String.format(" | Search: %.1f ms", searchPipeline.getLastLatencyMillis())
+                    + (loading ? " | Loading..." : loadFailed ? " | Read-only" : ""));
+            return;
+        }
+
         int totalPages = Math.max(1, (int) Math.ceil((double) total / rowsPerPage));
         currentPage = Math.max(1, Math.min(currentPage, totalPages));
 
@@ -418,9 +596,17 @@ public class BookOrganizerApp extends JFrame {
         // PRIORITY: Refresh the table data first so the user sees the books instantly
         bookTablePanel.refreshTable(pagedBooks);
 
+        // Next page first, then the previous one, so either button lands on decoded covers
+        List<Book> neighbours = new ArrayList<>();
+        neighbours.addAll(filteredBooks.subList(Math.min(end, total), Math.min(end + rowsPerPage, total)));
+        neighbours.addAll(filteredBooks.subList(Math.max(0, start - rowsPerPage), start));
+        bookTablePanel.prefetchCovers(neighbours);
+
         // OFF-LOAD: Rebuilding the page buttons is moved to the next UI cycle to prevent stutter
         SwingUtilities.invokeLater(() -> {
-            statusLabel.setText(total + " books total | Page " + currentPage + " of " + totalPages);
+            statusLabel.setText(total + " books total | Page " + currentPage + " of " + totalPages
+                    + String.format(" | Search: %.1f ms", searchPipeline.getLastLatencyMillis())
+                    + (loading ? " | Loading..." : loadFailed ? " | Read-only" : ""));
             pageNumbersPanel.removeAll();
 
             // Smart button builder: only shows a few numbers if there are too many pages
@@ -466,10 +652,12 @@ public class BookOrganizerApp extends JFrame {
     }
 
     private void addBook() {
+        if (stillLoading()) return;
         BookDialog dialog = new BookDialog(this, "Add Book", null);
         dialog.setVisible(true);
         if (dialog.isConfirmed()) {
             library.addBook(dialog.getBook());
+            journalChange(() -> journal.recordAdd(dialog.getBook()));
             applyFiltersAndSort();
         }
 
@@ -477,22 +665,41 @@ public class BookOrganizerApp extends JFrame {
 
     private void editBook() {
         Book book = getSelectedBook();
-        if (book == null) return;
+        if (book == null || stillLoading()) return;
         BookDialog dialog = new BookDialog(this, "Edit Book", book);
         dialog.setVisible(true);
-        if (dialog.isConfirmed()) applyFiltersAndSort();
+        if (dialog.isConfirmed()) {
+            library.updateBook(book);
+            bookTablePanel.bookChanged(book);
+            journalChange(() -> journal.recordUpdate(book));
+            applyFiltersAndSort();
+        }
     }
 
     private void removeBook() {
         Book book = getSelectedBook();
-        if (book == null) return;
+        if (book == null || stillLoading()) return;
         int confirm = JOptionPane.showConfirmDialog(this, "Delete \"" + book.getTitle() + "\"?", "Confirm", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
             library.removeBook(book);
+            journalChange(() -> journal.recordRemove(book));
             applyFiltersAndSort();
         }
     }
 
+    private interface JournalWrite {
+        void write() throws IOException;
+    }
+
+    // Every edit is persisted right away as one journal record
+    private void journalChange(JournalWrite write) {
+        try {
+            write.write();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not record change: " + e.getMessage());
+        }
+    }
+
     private void viewBookDetails() {
         Book book = getSelectedBook();
         if (book != null) new BookDetailDialog(this, book).setVisible(true);
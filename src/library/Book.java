@@ -2,25 +2,48 @@ package library;
 
 import service.BookValidator;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
 
 public class Book {
     private String title;
-    private String author;
+    private StringDictionary strings; // holds author and genre; shared by the books of one library
+    private int authorId;
     private Date dateAdded;
-    private String genre;
+    private int genreId;
     private int publishingDate;
     private String imagePath;
     private String documentPath;
 
+    // Derived values, worked out on first use. Each immutable holder remembers the field
+    // values it was worked out from, and a getter that finds them changed (a setter ran,
+    // maybe while another thread was computing) works it out again instead of trusting it.
+    private volatile SearchKeys searchKeys; // lowercase title, author, genre and the year
+    private volatile TitleKey titleKey;     // case-folded, for sorting; author and genre keep theirs in the dictionary
+    private volatile DisplayDate displayDate;
+
+    // Immutable, so every thread can share it
+    private static final DateTimeFormatter DISPLAY_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    // A book on its own, e.g. from the add dialog; BookLibrary moves it into its dictionary when added
     public Book(String title, String author, Date dateAdded, String genre, int publishingDate,
                 String imagePath, String documentPath) {
+        this(new StringDictionary(2), title, author, dateAdded, genre, publishingDate, imagePath, documentPath);
+    }
+
+    // Loaders pass one dictionary for every book they read
+    public Book(StringDictionary strings, String title, String author, Date dateAdded, String genre,
+                int publishingDate, String imagePath, String documentPath) {
 
         BookValidator.validate(title, author, genre, publishingDate);
         this.title = title.trim();
-        this.author = author.trim();
+        this.strings = strings;
+        this.authorId = strings.intern(author.trim());
         this.dateAdded = dateAdded;
-        this.genre = genre.trim();
+        this.genreId = strings.intern(genre.trim());
         this.publishingDate = publishingDate;
         this.imagePath = imagePath;
         this.documentPath = documentPath;
@@ -28,24 +51,133 @@ public class Book {
 
     // Getters
     public String getTitle() { return title; }
-    public String getAuthor() { return author; }
+    public String getAuthor() { return strings.get(authorId); }
     public Date getDateAdded() { return dateAdded; }
-    public String getGenre() { return genre; }
+    public String getGenre() { return strings.get(genreId); }
     public int getPublishingDate() { return publishingDate; }
     public String getImagePath() { return imagePath; }
     public String getDocumentPath() { return documentPath; }
 
+    // Within one dictionary equal ids mean equal text, so these compare as plain ints
+    public StringDictionary getStrings() { return strings; }
+    public int getAuthorId() { return authorId; }
+    public int getGenreId() { return genreId; }
+
+    // Re-interns author and genre in another dictionary; only for books no other thread sees yet
+    void moveTo(StringDictionary target) {
+        if (strings == target) return;
+        int author = target.intern(getAuthor());
+        int genre = target.intern(getGenre());
+        authorId = author;
+        genreId = genre;
+        strings = target;
+    }
+
+    // Derived getters
+    // Keys the search bar matches against; shared, so don't modify the array
+    public String[] getSearchKeys() {
+        SearchKeys cached = searchKeys;
+        String t = title;
+        StringDictionary dict = strings;
+        int author = authorId, genre = genreId, year = publishingDate;
+        if (cached == null || !cached.isFor(t, dict, author, genre, year)) {
+            searchKeys = cached = new SearchKeys(t, dict, author, genre, year);
+        }
+        return cached.keys;
+    }
+
+    public String getTitleKey() {
+        TitleKey cached = titleKey;
+        String t = title;
+        if (cached == null || cached.title != t) titleKey = cached = new TitleKey(t);
+        return cached.key;
+    }
+
+    public String getAuthorKey() {
+        return strings.getFolded(authorId);
+    }
+
+    public String getGenreKey() {
+        return strings.getFolded(genreId);
+    }
+
+    public String getDisplayDate() {
+        DisplayDate cached = displayDate;
+        long millis = dateAdded.getTime(); // Date is mutable, so the time itself is the source
+        if (cached == null || cached.millis != millis) displayDate = cached = new DisplayDate(millis);
+        return cached.text;
+    }
+
+    public boolean hasDocument() {
+        return documentPath != null && !documentPath.isEmpty();
+    }
+
+    // Same ordering as String.CASE_INSENSITIVE_ORDER, but paid once per book instead of per comparison
+    public static String foldCase(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
     // Setters
     public void setTitle(String title) { this.title = title; }
-    public void setAuthor(String author) { this.author = author; }
+    public void setAuthor(String author) { this.authorId = strings.intern(author); }
     public void setDateAdded(Date dateAdded) { this.dateAdded = dateAdded; }
-    public void setGenre(String genre) { this.genre = genre; }
+    public void setGenre(String genre) { this.genreId = strings.intern(genre); }
     public void setPublishingDate(int publishingDate) { this.publishingDate = publishingDate; }
     public void setImagePath(String imagePath) { this.imagePath = imagePath; }
     public void setDocumentPath(String documentPath) { this.documentPath = documentPath; }
 
     @Override
     public String toString() {
-        return title + " by " + author;
+        return title + " by " + getAuthor();
+    }
+
+    // Holders for the derived values, each with the fields it came from.
+    // Titles are compared by reference: a setter always stores a different String object.
+    private static final class SearchKeys {
+        final String title;
+        final StringDictionary strings;
+        final int authorId;
+        final int genreId;
+        final int year;
+        final String[] keys;
+
+        SearchKeys(String title, StringDictionary strings, int authorId, int genreId, int year) {
+            this.title = title;
+            this.strings = strings;
+            this.authorId = authorId;
+            this.genreId = genreId;
+            this.year = year;
+            this.keys = new String[]{title.toLowerCase(), strings.getLower(authorId),
+                    strings.getLower(genreId), String.valueOf(year)};
+        }
+
+        boolean isFor(String title, StringDictionary strings, int authorId, int genreId, int year) {
+            return this.title == title && this.strings == strings && this.authorId == authorId
+                    && this.genreId == genreId && this.year == year;
+        }
+    }
+
+    private static final class TitleKey {
+        final String title;
+        final String key;
+
+        TitleKey(String title) {
+            this.title = title;
+            this.key = foldCase(title);
+        }
+    }
+
+    private static final class DisplayDate {
+        final long millis;
+        final String text;
+
+        DisplayDate(long millis) {
+            this.millis = millis;
+            this.text = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).format(DISPLAY_DATE_FORMAT);
+        }
     }
 }
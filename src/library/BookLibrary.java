@@ -4,20 +4,50 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class BookLibrary {
+    // Author and genre strings of every book in the library, see StringDictionary
+    private StringDictionary strings = new StringDictionary();
+
     private final List<Book> books = new ArrayList<>();
+    private final List<BookLibraryListener> listeners = new ArrayList<>();
+
+    public void addListener(BookLibraryListener listener) {
+        listeners.add(listener);
+    }
+    public void removeListener(BookLibraryListener listener) {
+        listeners.remove(listener);
+    }
 
     public void addBook(Book b) {
+        b.moveTo(strings);
         books.add(b);
+        for (BookLibraryListener l : listeners) l.bookAdded(b);
+    }
+    // Appends a batch in order, e.g. the next block of a library that is still loading
+    public void addBooks(List<Book> batch) {
+        for (Book b : batch) b.moveTo(strings);
+        books.addAll(batch);
+        for (BookLibraryListener l : listeners) l.booksAdded(batch);
     }
     public void removeBook(Book b) {
-        books.remove(b);
+        if (!books.remove(b)) return;
+        for (BookLibraryListener l : listeners) l.bookRemoved(b);
+    }
+
+    // Call after a book's fields were changed through its setters (e.g. by BookDialog)
+    public void updateBook(Book b) {
+        for (BookLibraryListener l : listeners) l.bookUpdated(b);
     }
+
     public List<Book> getBooks() {
         return books;
     }
 
+    // Takes over the dictionary the books were loaded with; books from anywhere else are moved into it
     public void setBooks(List<Book> books) {
+        strings = books.isEmpty() ? new StringDictionary() : books.get(0).getStrings();
+        for (Book b : books) b.moveTo(strings);
         this.books.clear();
         this.books.addAll(books);
+        for (BookLibraryListener l : listeners) l.libraryReset(this.books);
     }
 }
@@ -0,0 +1,16 @@
+package library;
+
+import java.util.List;
+
+// Receives every change made through BookLibrary, so derived structures can update one book at a time
+public interface BookLibraryListener {
+    void bookAdded(Book book);
+    void bookRemoved(Book book);
+    void bookUpdated(Book book);
+    void libraryReset(List<Book> books);
+
+    // Several books appended at once, in order
+    default void booksAdded(List<Book> books) {
+        for (Book b : books) bookAdded(b);
+    }
+}
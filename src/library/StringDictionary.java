@@ -0,0 +1,75 @@
+package library;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Dictionary encoding for low-cardinality text such as authors and genres: every distinct
+// string is stored once and books keep its int id, so a million books with a few thousand
+// authors hold a few thousand author Strings, and equal ids mean equal text.
+// The lowercase (search) and case-folded (sort) forms are kept per id as well.
+// Each load starts a new dictionary and BookLibrary keeps the one of its current books,
+// so strings of a library that was replaced go away with it.
+// Thread-safe: loaders intern from several threads while the EDT reads.
+public class StringDictionary {
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    // Written only under the lock; a reader that got an id from ids (or from a Book built
+    // after intern returned) is guaranteed to see its slots
+    private volatile String[] values;
+    private volatile String[] lower;
+    private volatile String[] folded;
+    private int size;
+
+    public StringDictionary() {
+        this(64);
+    }
+
+    // Small capacities suit a single book's dictionary, see Book
+    public StringDictionary(int capacity) {
+        capacity = Math.max(1, capacity);
+        values = new String[capacity];
+        lower = new String[capacity];
+        folded = new String[capacity];
+    }
+
+    // The id of s, adding it on first sight; null maps to -1
+    public int intern(String s) {
+        if (s == null) return -1;
+        Integer id = ids.get(s);
+        if (id != null) return id;
+
+        synchronized (this) {
+            id = ids.get(s);
+            if (id != null) return id;
+
+            if (size == values.length) {
+                int capacity = size * 2;
+                lower = Arrays.copyOf(lower, capacity);
+                folded = Arrays.copyOf(folded, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            lower[size] = s.toLowerCase();
+            folded[size] = Book.foldCase(s);
+            values[size] = s;
+            ids.put(s, size);
+            return size++;
+        }
+    }
+
+    public String get(int id) {
+        return id < 0 ? null : values[id];
+    }
+
+    public String getLower(int id) {
+        return id < 0 ? null : lower[id];
+    }
+
+    public String getFolded(int id) {
+        return id < 0 ? null : folded[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -1,21 +1,43 @@
 package service;
 
 import library.Book;
+import library.StringDictionary;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class BookCSVHandler {
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    // Immutable, so the parallel loader can share it between threads. Strict: anything it
+    // rejects is parsed the way SimpleDateFormat always did, see parseDate
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss").withResolverStyle(ResolverStyle.STRICT);
     private static final String CSV_HEADER = "Title,Author,Genre,PublishingDate,DateAdded,ImagePath,DocumentPath";
 
-    // Set folder in local disk
-    private static final String FOLDER_PATH = "C:/BookOrganizer/";
+    // Set folder in local disk; everything the app keeps on disk lives under it
+    public static final String FOLDER_PATH = "C:/BookOrganizer/";
     private static final String DEFAULT_FILE_PATH = FOLDER_PATH + "books.csv";  //LOCATION SA: C:/BookOrganizer/books.csv
 
+    // Files at least this large are loaded through ChunkedCSVParser
+    private static final long CHUNKED_LOAD_THRESHOLD = 16L << 20;
+
     public static void initCSV() throws IOException {
         File folder = new File(FOLDER_PATH);
         if (!folder.exists()) {
@@ -32,27 +54,61 @@ public class BookCSVHandler {
 
     public static void saveToCSV(List<Book> books) throws IOException {
         saveToCSV(books, DEFAULT_FILE_PATH);
+        writeSnapshot(books, BookSnapshot.Stamp.of(DEFAULT_FILE_PATH));
+    }
+
+    // Saves a checkpoint's books; the journal marks the checkpoint against the new CSV before
+    // it replaces the old one. Call journal.compact(checkpoint) afterwards.
+    public static void saveToCSV(List<Book> books, BookJournal journal, BookJournal.Checkpoint checkpoint) throws IOException {
+        saveToCSV(books, DEFAULT_FILE_PATH, temp -> journal.mark(checkpoint, temp));
+        writeSnapshot(books, BookSnapshot.Stamp.of(DEFAULT_FILE_PATH));
     }
 
     public static void saveToCSV(List<Book> books, String filePath) throws IOException {
+        saveToCSV(books, filePath, null);
+    }
+
+    // Runs on the finished temp file right before it replaces the target
+    private interface BeforeReplace {
+        void ready(Path temp) throws IOException;
+    }
+
+    private static void saveToCSV(List<Book> books, String filePath, BeforeReplace beforeReplace) throws IOException {
         File folder = new File(FOLDER_PATH);
         if (!folder.exists()) folder.mkdirs(); // ensure folder exists
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
-            writer.println(CSV_HEADER);
-
-            for (Book book : books) {
-                String line = String.format("\"%s\",\"%s\",\"%s\",%d,\"%s\",\"%s\",\"%s\"",
-                        escapeCSV(book.getTitle()),
-                        escapeCSV(book.getAuthor()),
-                        escapeCSV(book.getGenre()),
-                        book.getPublishingDate(),
-                        DATE_FORMAT.format(book.getDateAdded()),
-                        escapeCSV(book.getImagePath()),
-                        escapeCSV(book.getDocumentPath())
-                );
-                writer.println(line);
+        // Write a temp file next to the target and swap it in, so the old file stays intact
+        // until the new one is complete and on disk
+        Path target = Path.of(filePath).toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 BookCSVWriter writer = new BookCSVWriter(
+                         new OutputStreamWriter(Channels.newOutputStream(channel), Charset.defaultCharset()))) {
+                writer.writeLine(CSV_HEADER);
+
+                for (Book book : books) {
+                    writer.writeBook(book);
+                }
+
+                writer.flush();
+                channel.force(true);
             }
+            if (beforeReplace != null) beforeReplace.ready(temp);
+            replace(temp, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    static void replace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
@@ -60,27 +116,76 @@ public class BookCSVHandler {
         return loadFromCSV(DEFAULT_FILE_PATH);
     }
 
+    // Startup load: the binary snapshot while it still matches the CSV, otherwise the CSV
+    // itself, in which case a fresh snapshot is written in the background for next time
+    public static List<Book> loadLibraryFile() throws IOException {
+        List<Book> books = loadSnapshot();
+        if (books != null) return books;
+
+        BookSnapshot.Stamp stamp = BookSnapshot.Stamp.of(DEFAULT_FILE_PATH); // before reading, so a later save makes it stale
+        books = loadFromCSV();
+        cacheSnapshot(books, stamp);
+        return books;
+    }
+
+    // The default CSV's snapshot, or null when it has to be parsed again
+    public static List<Book> loadSnapshot() throws IOException {
+        return BookSnapshot.load(DEFAULT_FILE_PATH);
+    }
+
+    // Page-at-a-time access to the default CSV, see LazyCSVLoader; close it when done
+    public static LazyCSVLoader openLazyCSV() throws IOException {
+        return LazyCSVLoader.open(DEFAULT_FILE_PATH);
+    }
+
+    // Writes a snapshot of books parsed from the CSV as it was at stamp, in the background
+    public static void cacheSnapshot(List<Book> books, BookSnapshot.Stamp stamp) {
+        List<Book> parsed = new ArrayList<>(books);
+        CompletableFuture.runAsync(() -> writeSnapshot(parsed, stamp));
+    }
+
+    // The snapshot is only a cache, so failing to write it never fails the caller
+    private static void writeSnapshot(List<Book> books, BookSnapshot.Stamp stamp) {
+        try {
+            BookSnapshot.write(books, DEFAULT_FILE_PATH, stamp);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not write library snapshot: " + e.getMessage());
+        }
+    }
+
+
+    // Streaming access for files too large to hold as one List; close it when done
+    public static BookCSVReader openCSV() throws IOException {
+        return BookCSVReader.open(DEFAULT_FILE_PATH);
+    }
+
+    // Edit log for the default CSV, see BookJournal
+    public static BookJournal openJournal() {
+        return new BookJournal(DEFAULT_FILE_PATH);
+    }
 
     public static List<Book> loadFromCSV(String filePath) throws IOException {
-        List<Book> books = new ArrayList<>();
+        // Big files skip the line-by-line reader and are parsed straight from the bytes
+        if (new File(filePath).length() >= CHUNKED_LOAD_THRESHOLD) {
+            return ChunkedCSVParser.load(filePath);
+        }
+        return loadWithReader(filePath);
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line = reader.readLine(); // Skip header
+    static List<Book> loadWithReader(String filePath) throws IOException {
+        List<Book> books = new ArrayList<>();
 
-            while ((line = reader.readLine()) != null) {
-                try {
-                    Book book = parseCSVLine(line);
-                    if (book != null) books.add(book);
-                } catch (Exception e) {
-                    System.err.println("Error parsing line: " + line);
-                }
-            }
+        // Rows are parsed in parallel chunks; bad lines are reported with their line number
+        try (BookCSVReader reader = BookCSVReader.open(filePath)) {
+            while (reader.hasNext()) books.add(reader.next());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
 
         return books;
     }
 
-    private static Book parseCSVLine(String line) throws ParseException {
+    static Book parseCSVLine(String line, StringDictionary strings) {
         List<String> values = parseCSVValues(line);
 
         if (values.size() < 5) return null;
@@ -89,11 +194,29 @@ public class BookCSVHandler {
         String author = values.get(1);
         String genre = values.get(2);
         int publishingDate = Integer.parseInt(values.get(3));
-        Date dateAdded = DATE_FORMAT.parse(values.get(4));
+        Date dateAdded = parseDate(values.get(4));
         String imagePath = values.size() > 5 ? values.get(5) : "";
         String documentPath = values.size() > 6 ? values.get(6) : "";
 
-        return new Book(title, author, dateAdded, genre, publishingDate, imagePath, documentPath);
+        return new Book(strings, title, author, dateAdded, genre, publishingDate, imagePath, documentPath);
+    }
+
+    static Date parseDate(String value) {
+        try {
+            return Date.from(LocalDateTime.parse(value, DATE_FORMAT).atZone(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException e) {
+            // Dates the app always accepted, like "2020-1-2 3:04:05", a trailing ".0" or Feb 30th,
+            // get SimpleDateFormat's lenient rules. A new one each time: it isn't thread-safe.
+            try {
+                return new SimpleDateFormat(DATE_PATTERN).parse(value);
+            } catch (ParseException ignored) {
+                throw e;
+            }
+        }
+    }
+
+    static String formatDate(Date date) {
+        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()).format(DATE_FORMAT);
     }
 
     private static List<String> parseCSVValues(String line) {
@@ -117,9 +240,4 @@ public class BookCSVHandler {
 
         return values;
     }
-
-    private static String escapeCSV(String value) {
-        if (value == null) return "";
-        return value.replace("\"", "\"\"");
-    }
 }
@@ -0,0 +1,141 @@
+package service;
+
+import library.Book;
+import library.StringDictionary;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Streams books out of a CSV file. Lines are read in chunks and each chunk is parsed
+// on the common pool while the next ones are read; only a few chunks are held at a
+// time, so memory stays bounded however large the file is. Books come out in file order.
+public class BookCSVReader implements Iterator<Book>, Closeable {
+
+    private static final int CHUNK_ROWS = 2048;
+    private static final int MAX_CHUNKS_IN_FLIGHT = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+
+    private final BufferedReader reader;
+    private final StringDictionary strings = new StringDictionary(); // shared by every book of this file
+    private final ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+    private Iterator<Book> current = Collections.emptyIterator();
+    private long lineNumber;
+    private boolean endOfFile;
+
+    private BookCSVReader(BufferedReader reader) throws IOException {
+        this.reader = reader;
+        if (reader.readLine() != null) lineNumber = 1; // Skip header
+        else endOfFile = true;
+    }
+
+    public static BookCSVReader open(String filePath) throws IOException {
+        return new BookCSVReader(new BufferedReader(new FileReader(filePath)));
+    }
+
+    // Sequential, ordered stream over the remaining books; closing the stream closes the file
+    public Stream<Book> stream() {
+        Spliterator<Book> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            fill();
+            if (inFlight.isEmpty()) return false;
+            current = take(inFlight.poll()).iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public Book next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return current.next();
+    }
+
+    // Reads ahead until MAX_CHUNKS_IN_FLIGHT chunks are queued for parsing
+    private void fill() {
+        try {
+            while (!endOfFile && inFlight.size() < MAX_CHUNKS_IN_FLIGHT) {
+                List<String> lines = new ArrayList<>(CHUNK_ROWS);
+                long firstLine = lineNumber + 1;
+                String line;
+                while (lines.size() < CHUNK_ROWS && (line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+                lineNumber += lines.size();
+                if (lines.size() < CHUNK_ROWS) endOfFile = true;
+                if (!lines.isEmpty()) {
+                    inFlight.add(ForkJoinPool.commonPool().submit(() -> Chunk.parse(lines, firstLine, strings)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Error lines are reported here, on the reading thread, so they come out in file order
+    private static List<Book> take(Future<Chunk> future) {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading CSV", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        for (String error : chunk.errors) System.err.println(error);
+        return chunk.books;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Future<Chunk> f : inFlight) f.cancel(false);
+        inFlight.clear();
+        reader.close();
+    }
+
+    private static class Chunk {
+        final List<Book> books = new ArrayList<>();
+        final List<String> errors = new ArrayList<>(0);
+
+        static Chunk parse(List<String> lines, long firstLine, StringDictionary strings) {
+            Chunk chunk = new Chunk();
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                try {
+                    Book book = BookCSVHandler.parseCSVLine(line, strings);
+                    if (book != null) chunk.books.add(book);
+                } catch (Exception e) {
+                    chunk.errors.add("Error parsing line " + (firstLine + i) + ": " + line);
+                }
+            }
+            return chunk;
+        }
+    }
+}
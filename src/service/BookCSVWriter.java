@@ -0,0 +1,188 @@
+package service;
+
+import library.Book;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Date;
+
+// Writes library rows straight into one large reusable char buffer: fields are appended
+// and escaped in a single pass, numbers and dates are written digit by digit, and the
+// underlying Writer only sees full buffers. Output is identical to the old
+// String.format based rows.
+public class BookCSVWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_CHARS = 1 << 16;
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_CHARS];
+    private int pos;
+
+    private final String lineSeparator = System.lineSeparator();
+
+    // Offset of the system zone, valid for [offsetFrom, offsetUntil) epoch millis
+    private final ZoneRules zoneRules = ZoneId.systemDefault().getRules();
+    private long offsetFrom = Long.MAX_VALUE;
+    private long offsetUntil = Long.MIN_VALUE;
+    private int offsetSeconds;
+
+    public BookCSVWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void write(String text) throws IOException {
+        appendRaw(text);
+    }
+
+    public void writeLine(String line) throws IOException {
+        appendRaw(line);
+        appendRaw(lineSeparator);
+    }
+
+    // "title","author","genre",year,"dateAdded","imagePath","documentPath"
+    public void writeBook(Book book) throws IOException {
+        appendQuoted(book.getTitle());
+        append(',');
+        appendQuoted(book.getAuthor());
+        append(',');
+        appendQuoted(book.getGenre());
+        append(',');
+        appendInt(book.getPublishingDate());
+        append(',');
+        append('"');
+        appendDate(book.getDateAdded());
+        append('"');
+        append(',');
+        appendQuoted(book.getImagePath());
+        append(',');
+        appendQuoted(book.getDocumentPath());
+        appendRaw(lineSeparator);
+    }
+
+    private void appendQuoted(String value) throws IOException {
+        append('"');
+        if (value != null) {
+            if (value.indexOf('"') < 0) {
+                appendRaw(value);
+            } else {
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '"') append('"'); // CSV escape: double the quote
+                    append(c);
+                }
+            }
+        }
+        append('"');
+    }
+
+    private void append(char c) throws IOException {
+        if (pos == buffer.length) flushBuffer();
+        buffer[pos++] = c;
+    }
+
+    private void appendRaw(String s) throws IOException {
+        int off = 0;
+        int len = s.length();
+        while (off < len) {
+            if (pos == buffer.length) flushBuffer();
+            int n = Math.min(len - off, buffer.length - pos);
+            s.getChars(off, off + n, buffer, pos);
+            pos += n;
+            off += n;
+        }
+    }
+
+    private void appendInt(int value) throws IOException {
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                appendRaw(Integer.toString(value));
+                return;
+            }
+            append('-');
+            value = -value;
+        }
+        if (value >= 10) appendInt(value / 10);
+        append((char) ('0' + value % 10));
+    }
+
+    private void appendPadded(int value, int width) throws IOException {
+        for (int div = width == 4 ? 1000 : 10; div > 0; div /= 10) {
+            append((char) ('0' + (value / div) % 10));
+        }
+    }
+
+    // yyyy-MM-dd HH:mm:ss in the system zone, computed from the epoch millis
+    private void appendDate(Date date) throws IOException {
+        long millis = date.getTime();
+        if (millis < offsetFrom || millis >= offsetUntil) updateOffset(millis);
+
+        long localSeconds = Math.floorDiv(millis, 1000L) + offsetSeconds;
+        long days = Math.floorDiv(localSeconds, 86_400L);
+        int secondOfDay = (int) Math.floorMod(localSeconds, 86_400L);
+
+        // Civil date from days since 1970-01-01 (proleptic Gregorian)
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (year < 0 || year > 9999) {
+            appendRaw(BookCSVHandler.formatDate(date)); // outside yyyy, let the formatter decide
+            return;
+        }
+
+        appendPadded((int) year, 4);
+        append('-');
+        appendPadded(month, 2);
+        append('-');
+        appendPadded(day, 2);
+        append(' ');
+        appendPadded(secondOfDay / 3600, 2);
+        append(':');
+        appendPadded(secondOfDay / 60 % 60, 2);
+        append(':');
+        appendPadded(secondOfDay % 60, 2);
+    }
+
+    // Looks up the zone offset and how long it stays valid, so DST rules are consulted once per period
+    private void updateOffset(long millis) {
+        Instant instant = Instant.ofEpochMilli(millis);
+        offsetSeconds = zoneRules.getOffset(instant).getTotalSeconds();
+
+        ZoneOffsetTransition previous = zoneRules.previousTransition(instant.plusMillis(1));
+        ZoneOffsetTransition next = zoneRules.nextTransition(instant);
+        offsetFrom = previous == null ? Long.MIN_VALUE : previous.getInstant().toEpochMilli();
+        offsetUntil = next == null ? Long.MAX_VALUE : next.getInstant().toEpochMilli();
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, pos);
+        pos = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
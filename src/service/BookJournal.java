@@ -0,0 +1,438 @@
+package service;
+
+import library.Book;
+import library.StringDictionary;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Append-only log of library edits kept next to books.csv, so one add/edit/remove costs
+// one small write instead of a full CSV rewrite. The CSV is the snapshot; the journal
+// holds everything since. Records refer to books by a stable id: the CSV's books are
+// 0..n-1 in file order and every added book takes the next free id.
+//
+//   A,<id>,<csv row>  book appended
+//   U,<id>,<csv row>  book replaced
+//   R,<id>            book removed
+//
+// The first line names the snapshot the records apply to (CSV size and modified time).
+// Just before a save swaps in the new CSV it appends a marker naming the new CSV, where
+// its records start and the ids of the books it wrote:
+//
+//   #checkpoint <first record> <CSV size> <CSV modified time> <id runs>
+//
+// so a crash between the swap and compact() still replays the edits made during the
+// save. A journal that matches neither the CSV nor any marker is discarded on replay.
+// Call replay once after loading the CSV, before recording anything.
+public class BookJournal implements Closeable {
+
+    private static final String HEADER_PREFIX = "#snapshot ";
+    private static final String MARKER_PREFIX = "#checkpoint ";
+
+    private final Path csvPath;
+    private final Path journalPath;
+
+    // Id of every book in the library, by identity; edits look them up instead of searching the list
+    private final Map<Book, Integer> ids = new IdentityHashMap<>();
+    private int nextId;
+
+    private FileChannel channel;
+    private BookCSVWriter writer;
+    private int recordCount;
+    private long firstSequence; // sequence number of the journal's first record
+
+    public BookJournal(String csvPath) {
+        this.csvPath = Path.of(csvPath).toAbsolutePath();
+        this.journalPath = this.csvPath.resolveSibling(this.csvPath.getFileName() + ".journal");
+    }
+
+    // Number of records on top of the current snapshot
+    public synchronized int size() {
+        return recordCount;
+    }
+
+    /**
+     * Applies the journal to books freshly loaded from the CSV.
+     * Returns how many records were applied; a torn or unreadable record is skipped and
+     * dropped from the journal, the records after it still apply.
+     */
+    public synchronized int replay(List<Book> books) throws IOException {
+        close();
+        boolean exists = Files.exists(journalPath);
+        boolean current = exists && snapshotHeader().equals(readHeader());
+        List<String> records = current ? readRecords() : exists ? recoverRecords() : List.of();
+
+        // Insertion order is library order: an update keeps its place, adds go last
+        Map<Integer, Book> live = new LinkedHashMap<>();
+        for (Book book : books) live.put(live.size(), book);
+        nextId = books.size();
+        // Journaled books join the dictionary the CSV's books were loaded with
+        StringDictionary strings = books.isEmpty() ? new StringDictionary() : books.get(0).getStrings();
+
+        List<String> kept = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            String record = records.get(i);
+            try {
+                apply(record, live, strings);
+                kept.add(record);
+            } catch (RuntimeException e) {
+                System.err.println("Skipping journal record " + (i + 1) + ": " + record);
+            }
+        }
+
+        int applied = kept.size();
+        if (applied > 0) {
+            books.clear();
+            books.addAll(live.values());
+        }
+        ids.clear();
+        for (Map.Entry<Integer, Book> e : live.entrySet()) ids.put(e.getValue(), e.getKey());
+
+        firstSequence = 0;
+        if (!current || applied < records.size()) {
+            // Drop a stale journal, or the records that couldn't be applied,
+            // so new records always land on top of the current snapshot
+            rewrite(kept);
+        }
+        recordCount = applied;
+        return applied;
+    }
+
+    // A book only gets its id once its add record is on disk; one whose add failed has none
+    public synchronized void recordAdd(Book book) throws IOException {
+        int id = nextId;
+        append("A," + id + ",", book);
+        nextId++;
+        ids.put(book, id);
+    }
+
+    public synchronized void recordUpdate(Book book) throws IOException {
+        Integer id = ids.get(book);
+        if (id == null) { // its add never reached the journal, so write the whole book now
+            recordAdd(book);
+            return;
+        }
+        append("U," + id + ",", book);
+    }
+
+    public synchronized void recordRemove(Book book) throws IOException {
+        Integer id = ids.get(book);
+        if (id == null) return; // nothing on disk to remove
+        append("R," + id, null);
+        ids.remove(book);
+    }
+
+    /**
+     * Marks the point a CSV save starts from; take it on the same thread that edits the
+     * library, together with the copy of the books being saved. A saved book whose add
+     * never reached the journal gets its id here, since the save is what puts it on disk.
+     */
+    public synchronized Checkpoint checkpoint(List<Book> saved) {
+        int[] savedIds = new int[saved.size()];
+        for (int i = 0; i < savedIds.length; i++) {
+            Integer id = ids.get(saved.get(i));
+            if (id == null) {
+                id = nextId++;
+                ids.put(saved.get(i), id);
+            }
+            savedIds[i] = id;
+        }
+        return new Checkpoint(firstSequence + recordCount, savedIds);
+    }
+
+    /**
+     * Call after the CSV was rewritten from the checkpoint's books. Only the records the
+     * checkpoint covers are dropped; records appended while the CSV was being written are
+     * carried over to the fresh journal, renumbered against the new CSV.
+     */
+    public synchronized void compact(Checkpoint checkpoint) throws IOException {
+        close();
+        List<String> records = readRecords();
+        int from = (int) Math.max(0, Math.min(records.size(), checkpoint.sequence - firstSequence));
+
+        Map<Integer, Integer> renumbered = new HashMap<>();
+        List<String> carried = new ArrayList<>(records.size() - from);
+        int next = renumber(records.subList(from, records.size()), checkpoint.ids, renumbered, carried);
+
+        // A book that is neither in the new CSV nor in a carried record has nothing on disk
+        // to refer to; it loses its id, and its next update writes it whole again
+        for (Iterator<Map.Entry<Book, Integer>> it = ids.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Book, Integer> e = it.next();
+            Integer newId = renumbered.get(e.getValue());
+            if (newId == null) {
+                it.remove();
+            } else {
+                e.setValue(newId);
+            }
+        }
+        nextId = next;
+        rewrite(carried);
+        firstSequence = checkpoint.sequence;
+    }
+
+    /**
+     * Call once the checkpoint's books are written to newCsv and before it replaces the
+     * CSV. Ties the checkpoint to the new CSV, see the class comment.
+     */
+    public synchronized void mark(Checkpoint checkpoint, Path newCsv) throws IOException {
+        long from = Math.max(0, checkpoint.sequence - firstSequence);
+        StringBuilder marker = new StringBuilder(MARKER_PREFIX).append(from)
+                .append(' ').append(Files.size(newCsv))
+                .append(' ').append(Files.getLastModifiedTime(newCsv).toMillis());
+        // Saved ids are mostly ascending runs, so they are written as first-last pairs
+        int[] saved = checkpoint.ids;
+        for (int i = 0; i < saved.length; ) {
+            int j = i;
+            while (j + 1 < saved.length && saved[j + 1] == saved[j] + 1) j++;
+            marker.append(' ').append(saved[i]);
+            if (j > i) marker.append('-').append(saved[j]);
+            i = j + 1;
+        }
+        write(marker.toString(), null); // not a record, so the sequence doesn't move
+    }
+
+    // Saved books become rows 0..n-1 of the new CSV and books added after them follow.
+    // Moves records onto those ids, filling renumbered (old id to new) and carried, and
+    // returns the next free id. A record that refers to no book on disk is dropped.
+    private static int renumber(List<String> records, int[] savedIds,
+                                Map<Integer, Integer> renumbered, List<String> carried) {
+        for (int i = 0; i < savedIds.length; i++) renumbered.put(savedIds[i], i);
+        int next = savedIds.length;
+
+        for (String record : records) {
+            int idEnd = record.indexOf(',', 2);
+            int oldId;
+            try {
+                oldId = Integer.parseInt(idEnd < 0 ? record.substring(2) : record.substring(2, idEnd));
+            } catch (RuntimeException e) {
+                continue; // torn; replay would skip it anyway
+            }
+            Integer newId = renumbered.get(oldId);
+            if (newId == null) {
+                if (record.charAt(0) != 'A') continue;
+                newId = next++;
+                renumbered.put(oldId, newId);
+            }
+            carried.add(record.substring(0, 2) + newId + (idEnd < 0 ? "" : record.substring(idEnd)));
+        }
+        return next;
+    }
+
+    // What a save covers: how many records came before it and the ids of the books it wrote
+    public static class Checkpoint {
+        private final long sequence;
+        private final int[] ids;
+
+        private Checkpoint(long sequence, int[] ids) {
+            this.sequence = sequence;
+            this.ids = ids;
+        }
+    }
+
+    private void apply(String record, Map<Integer, Book> live, StringDictionary strings) {
+        char type = record.charAt(0);
+        int idEnd = record.indexOf(',', 2);
+        switch (type) {
+            case 'A': {
+                int id = Integer.parseInt(record.substring(2, idEnd));
+                if (live.containsKey(id)) throw new IllegalArgumentException("Duplicate journal id");
+                live.put(id, parseBook(record.substring(idEnd + 1), strings));
+                nextId = Math.max(nextId, id + 1);
+                break;
+            }
+            case 'U': {
+                int id = Integer.parseInt(record.substring(2, idEnd));
+                if (!live.containsKey(id)) throw new IllegalArgumentException("Unknown journal id");
+                live.put(id, parseBook(record.substring(idEnd + 1), strings));
+                break;
+            }
+            case 'R':
+                if (live.remove(Integer.parseInt(record.substring(2))) == null) {
+                    throw new IllegalArgumentException("Unknown journal id");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown journal record");
+        }
+    }
+
+    private static Book parseBook(String row, StringDictionary strings) {
+        Book book = BookCSVHandler.parseCSVLine(row, strings);
+        if (book == null) throw new IllegalArgumentException("Incomplete journal row");
+        return book;
+    }
+
+    // Every record line after the header, without markers
+    private List<String> readRecords() throws IOException {
+        List<String> records = new ArrayList<>();
+        if (!Files.exists(journalPath)) return records;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(journalPath.toFile()))) {
+            reader.readLine(); // Skip header
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty() && !line.startsWith("#")) records.add(line);
+            }
+        }
+        return records;
+    }
+
+    // The journal's header names an older CSV: if a save left a marker for the current one,
+    // the records from the marker on, renumbered against it; otherwise none
+    private List<String> recoverRecords() throws IOException {
+        if (!Files.exists(csvPath)) return List.of();
+        String size = String.valueOf(Files.size(csvPath));
+        String modified = String.valueOf(Files.getLastModifiedTime(csvPath).toMillis());
+
+        String[] fields = null; // the last marker naming the current CSV
+        try (BufferedReader reader = new BufferedReader(new FileReader(journalPath.toFile()))) {
+            reader.readLine(); // Skip header
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith(MARKER_PREFIX)) continue;
+                String[] marker = line.substring(MARKER_PREFIX.length()).split(" ");
+                if (marker.length >= 3 && marker[1].equals(size) && marker[2].equals(modified)) fields = marker;
+            }
+        }
+        if (fields == null) return List.of();
+
+        List<String> records = readRecords();
+        int from = (int) Math.min(records.size(), Long.parseLong(fields[0]));
+        int[] saved = new int[0];
+        int count = 0;
+        for (int i = 3; i < fields.length; i++) {
+            int dash = fields[i].indexOf('-');
+            int first = Integer.parseInt(dash < 0 ? fields[i] : fields[i].substring(0, dash));
+            int last = dash < 0 ? first : Integer.parseInt(fields[i].substring(dash + 1));
+            if (count + last - first + 1 > saved.length) {
+                saved = Arrays.copyOf(saved, Math.max(saved.length * 2, count + last - first + 1));
+            }
+            for (int id = first; id <= last; id++) saved[count++] = id;
+        }
+
+        List<String> carried = new ArrayList<>(records.size() - from);
+        renumber(records.subList(from, records.size()), Arrays.copyOf(saved, count), new HashMap<>(), carried);
+        return carried;
+    }
+
+    // Replaces the journal with a fresh header plus the given records
+    private void rewrite(List<String> records) throws IOException {
+        Path temp = Files.createTempFile(journalPath.getParent(), journalPath.getFileName() + ".", ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 BookCSVWriter w = new BookCSVWriter(new OutputStreamWriter(Channels.newOutputStream(out), Charset.defaultCharset()))) {
+                w.writeLine(snapshotHeader());
+                for (String record : records) w.writeLine(record);
+                w.flush();
+                out.force(true);
+            }
+            BookCSVHandler.replace(temp, journalPath);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        recordCount = records.size();
+    }
+
+    private void append(String prefix, Book book) throws IOException {
+        write(prefix, book);
+        recordCount++;
+    }
+
+    private void write(String prefix, Book book) throws IOException {
+        if (writer == null) openForAppend();
+
+        long start = channel.size();
+        try {
+            writer.write(prefix);
+            if (book != null) {
+                writer.writeBook(book);
+            } else {
+                writer.writeLine("");
+            }
+            writer.flush();
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            abandon(start);
+            throw e;
+        }
+    }
+
+    // Cuts a half-written record off again and drops the writer along with whatever it
+    // still buffers, so none of it ends up in front of the next record
+    private void abandon(long start) {
+        try {
+            channel.truncate(start);
+        } catch (IOException ignored) {
+            // openForAppend() moves the next record past the torn line instead
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        writer = null;
+        channel = null;
+    }
+
+    private void openForAppend() throws IOException {
+        // The header isn't checked here: a save may have replaced the CSV while these
+        // records were being appended, and compact() sorts that out afterwards
+        if (!Files.exists(journalPath)) rewrite(List.of());
+        boolean torn = endsMidLine();
+
+        channel = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writer = new BookCSVWriter(new OutputStreamWriter(Channels.newOutputStream(channel), Charset.defaultCharset()));
+        if (torn) writer.writeLine(""); // replay skips the torn line on its own
+    }
+
+    // Whether the journal ends in a partial record left by a crash or a failed write
+    private boolean endsMidLine() throws IOException {
+        try (FileChannel in = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size == 0) return false;
+            ByteBuffer last = ByteBuffer.allocate(1);
+            in.read(last, size - 1);
+            return last.get(0) != '\n';
+        }
+    }
+
+    private String readHeader() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(journalPath.toFile()))) {
+            return reader.readLine();
+        }
+    }
+
+    private String snapshotHeader() throws IOException {
+        if (!Files.exists(csvPath)) return HEADER_PREFIX + "none";
+        return HEADER_PREFIX + Files.size(csvPath) + " " + Files.getLastModifiedTime(csvPath).toMillis();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close(); // also closes the channel
+            writer = null;
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package service;
+
+import library.Book;
+import library.StringDictionary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// Binary copy of books.csv for fast startup. The CSV stays the interchange format;
+// this file only mirrors it and is ignored as soon as the CSV changes.
+//
+//   int    magic, int version
+//   long   CSV size, long CSV modified time (the CSV this snapshot mirrors)
+//   int    string count, then strings        the books' author/genre StringDictionary
+//   int    book count, then per book:
+//          string title, int authorId, int genreId, int year, long dateAdded,
+//          string imagePath, string documentPath
+//
+// Strings are an int byte length (-1 for null) followed by UTF-8 bytes.
+public class BookSnapshot {
+
+    private static final int MAGIC = 0x424B534E; // "BKSN"
+    private static final int VERSION = 1;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    // Fewest bytes a table string and a book can take, to reject impossible counts
+    private static final int MIN_STRING_BYTES = Integer.BYTES;
+    private static final int MIN_BOOK_BYTES = 3 * MIN_STRING_BYTES + 3 * Integer.BYTES + Long.BYTES;
+
+    // Size and modified time of a CSV file, to tell whether a snapshot still matches it
+    public static class Stamp {
+        final long size;
+        final long modified;
+
+        private Stamp(long size, long modified) {
+            this.size = size;
+            this.modified = modified;
+        }
+
+        public static Stamp of(String csvPath) throws IOException {
+            Path path = Path.of(csvPath);
+            return new Stamp(Files.size(path), Files.getLastModifiedTime(path).toMillis());
+        }
+
+        boolean matches(long size, long modified) {
+            return this.size == size && this.modified == modified;
+        }
+    }
+
+    static Path snapshotPath(String csvPath) {
+        Path csv = Path.of(csvPath).toAbsolutePath();
+        return csv.resolveSibling(csv.getFileName() + ".snapshot");
+    }
+
+    // Books from the snapshot, or null if there is none or it doesn't match the CSV anymore
+    public static List<Book> load(String csvPath) throws IOException {
+        Path path = snapshotPath(csvPath);
+        if (!Files.exists(path) || !Files.exists(Path.of(csvPath))) return null;
+
+        Stamp current = Stamp.of(csvPath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Input in = new Input(channel);
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            if (!current.matches(in.readLong(), in.readLong())) return null;
+
+            // A fresh dictionary for the loaded library, filled straight from the stored table
+            StringDictionary strings = new StringDictionary();
+            String[] table = new String[in.readCount(MIN_STRING_BYTES)];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = in.readString();
+                strings.intern(table[i]);
+            }
+
+            int count = in.readCount(MIN_BOOK_BYTES);
+            List<Book> books = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String title = in.readString();
+                String author = table[in.readInt()];
+                String genre = table[in.readInt()];
+                int year = in.readInt();
+                Date dateAdded = new Date(in.readLong());
+                String imagePath = in.readString();
+                String documentPath = in.readString();
+                books.add(new Book(strings, title, author, dateAdded, genre, year, imagePath, documentPath));
+            }
+            return books;
+        } catch (RuntimeException e) {
+            // Truncated or damaged snapshot: the CSV is still there
+            System.err.println("Ignoring unreadable snapshot " + path + ": " + e);
+            return null;
+        }
+    }
+
+    // Writes books as the snapshot of the CSV identified by stamp (taken before the CSV was read)
+    public static void write(List<Book> books, String csvPath, Stamp stamp) throws IOException {
+        Path target = snapshotPath(csvPath);
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                Output out = new Output(channel);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(stamp.size);
+                out.writeLong(stamp.modified);
+
+                // Authors and genres repeat a lot, so the books' dictionary is stored as the
+                // table and their ids are written as they are. A book from another dictionary
+                // (only if the caller mixed libraries) is interned into a private copy first.
+                StringDictionary strings = sharedStrings(books);
+                int[] authorIds = new int[books.size()];
+                int[] genreIds = new int[books.size()];
+                for (int i = 0; i < books.size(); i++) {
+                    Book b = books.get(i);
+                    boolean shared = b.getStrings() == strings;
+                    authorIds[i] = shared ? b.getAuthorId() : strings.intern(b.getAuthor());
+                    genreIds[i] = shared ? b.getGenreId() : strings.intern(b.getGenre());
+                }
+
+                // Taken after the ids: every id written is below it, even if the EDT interns more meanwhile
+                int tableSize = strings.size();
+                out.writeInt(tableSize);
+                for (int i = 0; i < tableSize; i++) out.writeString(strings.get(i));
+
+                out.writeInt(books.size());
+                for (int i = 0; i < books.size(); i++) {
+                    Book b = books.get(i);
+                    out.writeString(b.getTitle());
+                    out.writeInt(authorIds[i]);
+                    out.writeInt(genreIds[i]);
+                    out.writeInt(b.getPublishingDate());
+                    out.writeLong(b.getDateAdded().getTime());
+                    out.writeString(b.getImagePath());
+                    out.writeString(b.getDocumentPath());
+                }
+
+                out.flush();
+                channel.force(true);
+            }
+            BookCSVHandler.replace(temp, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    // The dictionary every book uses, or a new one when they don't all share one
+    private static StringDictionary sharedStrings(List<Book> books) {
+        if (books.isEmpty()) return new StringDictionary();
+        StringDictionary strings = books.get(0).getStrings();
+        for (Book b : books) {
+            if (b.getStrings() != strings) return new StringDictionary();
+        }
+        return strings;
+    }
+
+    // Buffered writes to a channel
+    private static class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeInt(int v) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(v);
+        }
+
+        void writeLong(long v) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(v);
+        }
+
+        void writeString(String s) throws IOException {
+            if (s == null) {
+                writeInt(-1);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            int off = 0;
+            while (off < bytes.length) {
+                ensure(1);
+                int n = Math.min(bytes.length - off, buffer.remaining());
+                buffer.put(bytes, off, n);
+                off += n;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+    }
+
+    // Buffered reads from a channel; refills as values are consumed
+    private static class Input {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES); // heap, so strings decode in place
+
+        Input(FileChannel channel) {
+            this.channel = channel;
+            buffer.flip(); // start empty
+        }
+
+        int readInt() throws IOException {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        long readLong() throws IOException {
+            require(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        // A count of items that each take at least minBytes; checked against what is left of
+        // the file, so a damaged count fails here instead of allocating a huge array
+        int readCount(int minBytes) throws IOException {
+            int count = readInt();
+            if (count < 0 || (long) count * minBytes > remaining()) throw new IllegalStateException("Bad count " + count);
+            return count;
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            if (length < 0) return null;
+            // Only a string running past the buffer needs the (system call) file length check
+            if (length > buffer.remaining() && length > remaining()) {
+                throw new IllegalStateException("Bad string length " + length);
+            }
+
+            if (length <= buffer.capacity()) {
+                require(length);
+                String s = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+                return s;
+            }
+
+            byte[] bytes = new byte[length];
+            int off = 0;
+            while (off < length) {
+                require(1);
+                int n = Math.min(length - off, buffer.remaining());
+                buffer.get(bytes, off, n);
+                off += n;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // Bytes not read yet, buffered or still in the file
+        private long remaining() throws IOException {
+            return buffer.remaining() + channel.size() - channel.position();
+        }
+
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return;
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) throw new IllegalStateException("Snapshot ends early");
+            }
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package service;
+
+import library.Book;
+import library.StringDictionary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Loads the library CSV in chunks read into heap buffers and parsed in parallel. Rows are
+// found by scanning bytes for quotes, commas and newlines; no line Strings are built, years
+// and dates are parsed from the bytes, and only the text fields a Book keeps become Strings.
+// Nothing stays mapped or open once load() returns, so the file can be replaced right away.
+// Produces the same books as BookCSVHandler.parseCSVLine for every row.
+public class ChunkedCSVParser {
+
+    // Bytes per parallel chunk; a chunk ends at its last complete row, the rest moves to the next one
+    private static final int CHUNK_BYTES = 4 << 20;
+
+    // Same charset FileReader/FileWriter use for the CSV
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private static final int FIELDS = 7;
+
+    public static List<Book> load(String filePath) throws IOException {
+        // Chunks read ahead of the parsed ones are capped, so only a few buffers are alive at once
+        int window = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+        Lines lines = new Lines();
+        StringDictionary strings = new StringDictionary(); // shared by every book of this file
+
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES);
+            long position = 0;
+            boolean header = true;
+
+            while (true) {
+                boolean eof = false;
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        eof = true;
+                        break;
+                    }
+                    position += read;
+                }
+
+                int end = buffer.position();
+                int rowsEnd = eof ? end : lastRowEnd(buffer, end);
+                if (rowsEnd == 0 && !eof) {
+                    // A single row longer than the buffer
+                    buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+                    continue;
+                }
+
+                int start = 0;
+                if (header) {
+                    start = nextRow(buffer, 0, rowsEnd);
+                    header = false;
+                }
+                if (rowsEnd > start) {
+                    if (pending.size() >= window) lines.add(join(pending.poll()));
+                    final ByteBuffer rows = buffer;
+                    final int from = start;
+                    pending.add(ForkJoinPool.commonPool().submit(() -> parse(rows, from, rowsEnd, strings)));
+                }
+                if (eof) break;
+
+                // The unfinished row starts the next chunk; the parse task keeps the old buffer
+                int carry = end - rowsEnd;
+                ByteBuffer next = ByteBuffer.allocate(Math.max(CHUNK_BYTES, carry * 2));
+                next.put(buffer.array(), rowsEnd, carry);
+                buffer = next;
+            }
+
+            while (!pending.isEmpty()) lines.add(join(pending.poll()));
+            return lines.books;
+        } finally {
+            for (Future<Chunk> future : pending) future.cancel(false);
+        }
+    }
+
+    // Books of the chunks in file order, bad rows reported with their line number
+    private static class Lines {
+        final List<Book> books = new ArrayList<>();
+        long firstLine = 2;
+
+        void add(Chunk chunk) {
+            for (int i = 0; i < chunk.errorRows.size(); i++) {
+                System.err.println("Error parsing line " + (firstLine + chunk.errorRows.get(i)) + ": " + chunk.errorLines.get(i));
+            }
+            books.addAll(chunk.books);
+            firstLine += chunk.rows;
+        }
+    }
+
+    private static Chunk join(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading CSV", e);
+        } catch (Exception e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Parses the rows in buffer[start, end) whose first row is line firstLine of the file,
+     * reporting bad rows the same way load() does.
+     */
+    static List<Book> parseRows(ByteBuffer buffer, int start, int end, long firstLine, StringDictionary strings) {
+        Chunk chunk = parse(buffer, start, end, strings);
+        for (int i = 0; i < chunk.errorRows.size(); i++) {
+            System.err.println("Error parsing line " + (firstLine + chunk.errorRows.get(i)) + ": " + chunk.errorLines.get(i));
+        }
+        return chunk.books;
+    }
+
+    // Offset just past the last '\n' before end, 0 when there is none
+    private static int lastRowEnd(ByteBuffer buffer, int end) {
+        int pos = end;
+        while (pos > 0 && buffer.get(pos - 1) != '\n') pos--;
+        return pos;
+    }
+
+    // Offset just past the next '\n' at or after pos
+    private static int nextRow(ByteBuffer buffer, int pos, int end) {
+        while (pos < end && buffer.get(pos) != '\n') pos++;
+        return Math.min(end, pos + 1);
+    }
+
+    private static Chunk parse(ByteBuffer buffer, int start, int end, StringDictionary strings) {
+        Chunk chunk = new Chunk();
+        Row row = new Row(buffer, strings);
+
+        int pos = start;
+        while (pos < end) {
+            int lineEnd = pos;
+            while (lineEnd < end && buffer.get(lineEnd) != '\n') lineEnd++;
+            int contentEnd = lineEnd;
+            if (contentEnd > pos && buffer.get(contentEnd - 1) == '\r') contentEnd--;
+
+            try {
+                Book book = row.parse(pos, contentEnd);
+                if (book != null) chunk.books.add(book);
+            } catch (Exception e) {
+                chunk.errorRows.add(chunk.rows);
+                chunk.errorLines.add(row.decode(pos, contentEnd, false));
+            }
+
+            chunk.rows++;
+            pos = lineEnd + 1;
+        }
+        return chunk;
+    }
+
+    private static class Chunk {
+        final List<Book> books = new ArrayList<>();
+        final List<Integer> errorRows = new ArrayList<>(0);
+        final List<String> errorLines = new ArrayList<>(0);
+        int rows;
+    }
+
+    // Field boundaries of the current row; reused for every row of a chunk
+    private static class Row {
+        private final ByteBuffer buffer;
+        private final StringDictionary strings;
+        private final int[] starts = new int[FIELDS];
+        private final int[] ends = new int[FIELDS];
+        private final boolean[] quoted = new boolean[FIELDS];
+        private byte[] scratch = new byte[256];
+        private int count;
+
+        Row(ByteBuffer buffer, StringDictionary strings) {
+            this.buffer = buffer;
+            this.strings = strings;
+        }
+
+        Book parse(int start, int end) {
+            split(start, end);
+            if (count < 5) return null;
+
+            String title = field(0);
+            String author = field(1);
+            String genre = field(2);
+            int publishingDate = parseInt(3);
+            Date dateAdded = parseDate(4);
+            String imagePath = count > 5 ? field(5) : "";
+            String documentPath = count > 6 ? field(6) : "";
+
+            return new Book(strings, title, author, dateAdded, genre, publishingDate, imagePath, documentPath);
+        }
+
+        // Same rules as parseCSVValues: '"' toggles quoting and is dropped, commas split outside quotes
+        private void split(int start, int end) {
+            count = 0;
+            int fieldStart = start;
+            boolean inQuotes = false;
+            boolean sawQuote = false;
+
+            for (int i = start; i < end; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                    sawQuote = true;
+                } else if (b == ',' && !inQuotes) {
+                    addField(fieldStart, i, sawQuote);
+                    fieldStart = i + 1;
+                    sawQuote = false;
+                }
+            }
+            addField(fieldStart, end, sawQuote);
+        }
+
+        private void addField(int start, int end, boolean hasQuote) {
+            if (count < FIELDS) {
+                starts[count] = start;
+                ends[count] = end;
+                quoted[count] = hasQuote;
+            }
+            count++;
+        }
+
+        private String field(int index) {
+            return decode(starts[index], ends[index], quoted[index]);
+        }
+
+        // Copies the field minus its quote characters, trimmed like String.trim()
+        String decode(int start, int end, boolean dropQuotes) {
+            if (scratch.length < end - start) scratch = new byte[end - start];
+
+            int len = 0;
+            for (int i = start; i < end; i++) {
+                byte b = buffer.get(i);
+                if (dropQuotes && b == '"') continue;
+                scratch[len++] = b;
+            }
+
+            int from = 0;
+            while (from < len && (scratch[from] & 0xFF) <= ' ') from++;
+            while (len > from && (scratch[len - 1] & 0xFF) <= ' ') len--;
+            return new String(scratch, from, len - from, CHARSET);
+        }
+
+        // Digits of a field, quotes dropped and trimmed, into scratch; returns the length
+        private int digits(int index) {
+            if (scratch.length < ends[index] - starts[index]) scratch = new byte[ends[index] - starts[index]];
+
+            int len = 0;
+            for (int i = starts[index]; i < ends[index]; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') continue;
+                if ((b & 0xFF) <= ' ' && len == 0) continue;
+                scratch[len++] = b;
+            }
+            while (len > 0 && (scratch[len - 1] & 0xFF) <= ' ') len--;
+            return len;
+        }
+
+        private int parseInt(int index) {
+            int len = digits(index);
+            if (len == 0 || len > 9) return Integer.parseInt(field(index)); // empty or too long: let parseInt decide
+
+            int value = 0;
+            for (int i = 0; i < len; i++) {
+                int d = scratch[i] - '0';
+                if (d < 0 || d > 9) return Integer.parseInt(field(index));
+                value = value * 10 + d;
+            }
+            return value;
+        }
+
+        // "yyyy-MM-dd HH:mm:ss" read straight from the bytes; anything else goes through the formatter
+        private Date parseDate(int index) {
+            int len = digits(index);
+            if (len == 19 && scratch[4] == '-' && scratch[7] == '-' && scratch[10] == ' '
+                    && scratch[13] == ':' && scratch[16] == ':') {
+                int year = number(0, 4), month = number(5, 2), day = number(8, 2);
+                int hour = number(11, 2), minute = number(14, 2), second = number(17, 2);
+                if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0 && second >= 0) {
+                    try {
+                        LocalDateTime time = LocalDateTime.of(year, month, day, hour, minute, second);
+                        return Date.from(time.atZone(ZoneId.systemDefault()).toInstant());
+                    } catch (DateTimeException ignored) {
+                        // e.g. Feb 30th, which BookCSVHandler.parseDate resolves leniently
+                    }
+                }
+            }
+            return BookCSVHandler.parseDate(field(index));
+        }
+
+        private int number(int from, int length) {
+            int value = 0;
+            for (int i = from; i < from + length; i++) {
+                int d = scratch[i] - '0';
+                if (d < 0 || d > 9) return -1;
+                value = value * 10 + d;
+            }
+            return value;
+        }
+    }
+}
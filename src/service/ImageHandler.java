@@ -1,31 +1,34 @@
 package service;
 
+import util.ThumbnailDecoder;
+import util.WeightedLruCache;
 import javax.swing.*;
-import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
-import javax.imageio.ImageIO;
 
 public class ImageHandler {
-    // Cache to avoid reloading the same image from disk multiple times
-    private static final Map<String, BufferedImage> rawCache = new HashMap<>();
+    // Scaled icons by path|width|height; these are what the dialogs actually show.
+    // Full-size decodes are never kept: ThumbnailDecoder reads straight to the requested size.
+    private static final WeightedLruCache<String, ImageIcon> scaledCache =
+            new WeightedLruCache<>(16L << 20, icon -> 4L * icon.getIconWidth() * icon.getIconHeight());
 
     public static ImageIcon getScaledIcon(String path, int width, int height) {
         if (path == null || path.isEmpty()) return null;
 
+        String key = path + "|" + width + "|" + height;
+        ImageIcon cached = scaledCache.get(key);
+        if (cached != null) return cached;
+
         try {
-            BufferedImage original = rawCache.get(path);
-            if (original == null) {
-                File file = new File(path);
-                if (!file.exists()) return null;
-                original = ImageIO.read(file);
-                rawCache.put(path, original);
-            }
+            File file = new File(path);
+            if (!file.exists()) return null;
+
+            BufferedImage scaled = ThumbnailDecoder.decode(file, width, height);
+            if (scaled == null) return null;
 
-            Image scaled = original.getScaledInstance(width, height, Image.SCALE_SMOOTH);
-            return new ImageIcon(scaled);
+            ImageIcon icon = new ImageIcon(scaled);
+            scaledCache.put(key, icon);
+            return icon;
         } catch (Exception e) {
             return null;
         }
@@ -0,0 +1,185 @@
+package service;
+
+import library.Book;
+import library.StringDictionary;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Loads a library CSV a page at a time: readFirstRows() parses just enough of the file to
+ * show something, indexRemaining() records where every BLOCK_ROWS-th row of the rest starts,
+ * and forEachBlock() parses those blocks in the background, in file order.
+ */
+public class LazyCSVLoader implements Closeable {
+
+    // Rows per block of the sparse offset index
+    private static final int BLOCK_ROWS = 4096;
+    private static final int READ_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final BookSnapshot.Stamp stamp;
+    private final StringDictionary strings = new StringDictionary(); // shared by every book of this file
+
+    private long firstPageEnd = -1; // offset just past the rows readFirstRows() returned
+    private long firstPageLines;    // header included
+
+    // Start offset of every block after the first page; the last block ends at size
+    private long[] blockStarts = new long[0];
+    private int blockCount;
+    private long rowCount;
+
+    private LazyCSVLoader(Path path) throws IOException {
+        stamp = BookSnapshot.Stamp.of(path.toString()); // before reading, so a later save makes it stale
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+    }
+
+    public static LazyCSVLoader open(String filePath) throws IOException {
+        return new LazyCSVLoader(Path.of(filePath));
+    }
+
+    // What the file looked like when it was opened, for BookCSVHandler.cacheSnapshot
+    public BookSnapshot.Stamp getStamp() {
+        return stamp;
+    }
+
+    // Parses the first rows after the header; only reads as far as it has to
+    public List<Book> readFirstRows(int rows) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, 64 * 1024));
+        int lines = 0;
+        int end = 0;
+
+        while (true) {
+            if (!buffer.hasRemaining() && buffer.capacity() < size) {
+                buffer = ByteBuffer.allocate((int) Math.min(size, buffer.capacity() * 2L)).put(buffer.flip());
+            }
+            int read = channel.read(buffer, buffer.position());
+            boolean eof = read <= 0 || buffer.position() >= size;
+
+            for (; end < buffer.position() && lines <= rows; end++) {
+                if (buffer.get(end) == '\n') lines++;
+            }
+            if (lines > rows) break;
+            if (eof) {
+                if (end > 0 && buffer.get(end - 1) != '\n') lines++; // unterminated last row
+                break;
+            }
+        }
+
+        int headerEnd = 0;
+        while (headerEnd < end && buffer.get(headerEnd++) != '\n') {
+            // skip header
+        }
+
+        firstPageEnd = end;
+        firstPageLines = lines;
+        return ChunkedCSVParser.parseRows(buffer, headerEnd, end, 2, strings);
+    }
+
+    // Scans the rest of the file once, keeping only one offset per block
+    public void indexRemaining() throws IOException {
+        if (firstPageEnd < 0) throw new IllegalStateException("readFirstRows() first");
+
+        blockCount = 0;
+        rowCount = 0;
+        if (firstPageEnd >= size) return;
+
+        addBlock(firstPageEnd);
+        ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+        long position = firstPageEnd;
+        int rowsInBlock = 0;
+        boolean rowOpen = false;
+
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) != '\n') {
+                    rowOpen = true;
+                    continue;
+                }
+                rowOpen = false;
+                rowCount++;
+                if (++rowsInBlock == BLOCK_ROWS && position + i + 1 < size) {
+                    addBlock(position + i + 1);
+                    rowsInBlock = 0;
+                }
+            }
+            position += read;
+        }
+        if (rowOpen) rowCount++;
+    }
+
+    private void addBlock(long start) {
+        if (blockCount == blockStarts.length) blockStarts = Arrays.copyOf(blockStarts, Math.max(16, blockCount * 2));
+        blockStarts[blockCount++] = start;
+    }
+
+    // Rows after the first page, valid after indexRemaining()
+    public long getRemainingRows() {
+        return rowCount;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public List<Book> readBlock(int block) throws IOException {
+        long start = blockStarts[block];
+        long end = block + 1 < blockCount ? blockStarts[block + 1] : size;
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) break;
+        }
+        long firstLine = firstPageLines + 1 + (long) block * BLOCK_ROWS;
+        return ChunkedCSVParser.parseRows(buffer, 0, buffer.position(), firstLine, strings);
+    }
+
+    // Hands every block to the consumer in file order while later blocks parse in parallel
+    public void forEachBlock(Consumer<List<Book>> consumer) throws IOException {
+        int window = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+        ArrayDeque<CompletableFuture<List<Book>>> pending = new ArrayDeque<>();
+        int next = 0;
+
+        try {
+            while (next < blockCount || !pending.isEmpty()) {
+                while (next < blockCount && pending.size() < window) {
+                    int block = next++;
+                    pending.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return readBlock(block);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }));
+                }
+                consumer.accept(pending.poll().join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw e;
+        } finally {
+            for (CompletableFuture<List<Book>> f : pending) f.cancel(true);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,149 @@
+package service;
+
+import algorithm.BookAlgorithm;
+import algorithm.BookQueryEngine;
+import library.Book;
+import library.BookLibrary;
+import library.BookLibraryListener;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// Runs search-bar queries off the EDT. Keystrokes are debounced, a newer query cancels
+// the one in flight, and only the latest result is handed back on the EDT.
+// Library events are queued onto the same worker, so the engine needs no lock: an edit
+// never waits for a running query, and a query always sees every edit made before it.
+public class SearchPipeline {
+
+    private static final int DEBOUNCE_MS = 150;
+
+    private final BookQueryEngine engine;
+    private final Consumer<List<Book>> onResult;
+
+    // One worker is enough: only the newest query is ever worth finishing, and it is the
+    // only thread that touches the engine
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "search-worker");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Timer debounceTimer;
+
+    // EDT-only state
+    private String pendingQuery = "";
+    private BookAlgorithm.SortField pendingField = BookAlgorithm.SortField.TITLE;
+    private boolean pendingAscending = true;
+    private Future<?> running;
+    private volatile long generation;
+
+    // Latency metrics (submit -> result on EDT), EDT-only
+    private long queryCount;
+    private long totalNanos;
+    private long lastNanos;
+    private long maxNanos;
+
+    public SearchPipeline(BookLibrary library, BookQueryEngine engine, Consumer<List<Book>> onResult) {
+        this.engine = engine;
+        this.onResult = onResult;
+        debounceTimer = new Timer(DEBOUNCE_MS, e -> dispatch());
+        debounceTimer.setRepeats(false);
+
+        List<Book> initial = new ArrayList<>(library.getBooks());
+        executor.execute(() -> engine.libraryReset(initial));
+        library.addListener(new EngineUpdates());
+    }
+
+    // Called on the EDT; lists are copied there since the library keeps changing them
+    private class EngineUpdates implements BookLibraryListener {
+        @Override
+        public void bookAdded(Book book) { executor.execute(() -> engine.bookAdded(book)); }
+
+        @Override
+        public void booksAdded(List<Book> books) {
+            List<Book> batch = new ArrayList<>(books);
+            executor.execute(() -> engine.booksAdded(batch));
+        }
+
+        @Override
+        public void bookRemoved(Book book) { executor.execute(() -> engine.bookRemoved(book)); }
+
+        @Override
+        public void bookUpdated(Book book) { executor.execute(() -> engine.bookUpdated(book)); }
+
+        @Override
+        public void libraryReset(List<Book> books) {
+            List<Book> all = new ArrayList<>(books);
+            executor.execute(() -> engine.libraryReset(all));
+        }
+    }
+
+    // Typing: waits for a pause before querying
+    public void submit(String query, BookAlgorithm.SortField field, boolean ascending) {
+        setPending(query, field, ascending);
+        debounceTimer.restart();
+    }
+
+    // Sort changes and library edits: no reason to wait
+    public void submitNow(String query, BookAlgorithm.SortField field, boolean ascending) {
+        setPending(query, field, ascending);
+        debounceTimer.stop();
+        dispatch();
+    }
+
+    private void setPending(String query, BookAlgorithm.SortField field, boolean ascending) {
+        pendingQuery = query;
+        pendingField = field;
+        pendingAscending = ascending;
+    }
+
+    private void dispatch() {
+        final long gen = ++generation;
+        final String query = pendingQuery;
+        final BookAlgorithm.SortField field = pendingField;
+        final boolean ascending = pendingAscending;
+        final long submitted = System.nanoTime();
+
+        if (running != null) running.cancel(true);
+
+        running = executor.submit(() -> {
+            List<Book> result;
+            try {
+                result = engine.query(query, field, ascending);
+            } catch (CancellationException e) {
+                return;
+            }
+            if (gen != generation) return; // a newer query already replaced this one
+
+            SwingUtilities.invokeLater(() -> {
+                if (gen != generation) return;
+                recordLatency(System.nanoTime() - submitted);
+                onResult.accept(result);
+            });
+        });
+    }
+
+    private void recordLatency(long nanos) {
+        queryCount++;
+        totalNanos += nanos;
+        lastNanos = nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public long getQueryCount() { return queryCount; }
+    public double getLastLatencyMillis() { return lastNanos / 1_000_000.0; }
+    public double getMaxLatencyMillis() { return maxNanos / 1_000_000.0; }
+    public double getAverageLatencyMillis() {
+        return queryCount == 0 ? 0 : totalNanos / 1_000_000.0 / queryCount;
+    }
+
+    public void shutdown() {
+        debounceTimer.stop();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,210 @@
+package ui;
+
+import library.Book;
+import util.CoverImageUtil;
+import util.ThumbnailLoader;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Table rows read straight from a List<Book>: nothing is copied per row, cells are worked
+// out in getValueAt only for the rows the table actually paints. A refresh that shares rows
+// with the previous list (an edit, add or remove) only fires events for the rows between the
+// common head and tail, so selection and scroll position survive; anything else is a single
+// fireTableDataChanged. Covers that aren't decoded yet show the text cover while the
+// ThumbnailLoader fetches them, then only that cell is updated.
+public class BookTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLUMNS_BIG_PICTURE = {"Cover", "Title", "Author", "Genre", "Year", "Date Added", "Book File Status"};
+    private static final String[] COLUMNS_SIMPLE = {"Title", "Author", "Genre", "Year", "Date Added", "Book File Status"};
+
+    // Icons of recently painted rows, so repaints don't rebuild them
+    private static final int MAX_COVERS = 512;
+
+    private final ThumbnailLoader thumbnailLoader;
+    private final Map<Book, ImageIcon> covers = lruMap();
+    private final Map<Book, ImageIcon> placeholders = lruMap();
+    private final Set<Book> requested = new HashSet<>(); // decodes in flight
+
+    private List<Book> books = List.of();
+    private boolean bigPictureMode = true;
+
+    // Row of each book by identity, filled in lazily: rows below indexedUpTo are all in it,
+    // entries at or above it may be out of date and are checked against the list before use
+    private final Map<Book, Integer> rows = new IdentityHashMap<>();
+    private int indexedUpTo;
+
+    // Rows near the viewport; a queued decode for a row scrolled far away is skipped
+    private volatile int firstWantedRow = 0;
+    private volatile int lastWantedRow = Integer.MAX_VALUE;
+
+    public BookTableModel(ThumbnailLoader thumbnailLoader) {
+        this.thumbnailLoader = thumbnailLoader;
+    }
+
+    public void setBooks(List<Book> books) {
+        List<Book> old = this.books;
+        int oldSize = old.size();
+        int newSize = books.size();
+
+        // Rows that are the same books at the same place at both ends
+        int head = 0;
+        int max = Math.min(oldSize, newSize);
+        while (head < max && old.get(head) == books.get(head)) head++;
+        int tail = 0;
+        while (tail < max - head && old.get(oldSize - 1 - tail) == books.get(newSize - 1 - tail)) tail++;
+
+        this.books = books;
+        indexedUpTo = Math.min(indexedUpTo, head); // rows from head on may have moved
+
+        if (head + tail == 0 && (oldSize > 0 || newSize > 0)) {
+            rows.clear();
+            thumbnailLoader.cancelAll(); // covers still decoding belong to the previous rows
+            covers.clear();
+            placeholders.clear();
+            requested.clear();
+            fireTableDataChanged();
+            return;
+        }
+
+        // Rows [head, size - tail) differ: update the overlap, then insert or delete the rest
+        int oldEnd = oldSize - tail;
+        int newEnd = newSize - tail;
+        int common = Math.min(oldEnd, newEnd);
+        if (common > head) fireTableRowsUpdated(head, common - 1);
+        if (newEnd > oldEnd) fireTableRowsInserted(oldEnd, newEnd - 1);
+        else if (oldEnd > newEnd) fireTableRowsDeleted(newEnd, oldEnd - 1);
+    }
+
+    // A book's fields were edited: repaint its row and forget its cover, the image may have changed
+    public void bookChanged(Book book) {
+        covers.remove(book);
+        placeholders.remove(book);
+        int row = rowOf(book);
+        if (row >= 0) fireTableRowsUpdated(row, row);
+    }
+
+    public void setWantedRows(int first, int last) {
+        firstWantedRow = first;
+        lastWantedRow = last;
+    }
+
+    // Row of book, or -1; amortised O(1) however often it is asked between refreshes
+    public int rowOf(Book book) {
+        Integer row = rows.get(book);
+        if (row != null && row < books.size() && books.get(row) == book) return row;
+        if (row != null && row < indexedUpTo) rows.remove(book); // gone from the rows that are indexed
+
+        while (indexedUpTo < books.size()) {
+            int r = indexedUpTo++;
+            Book b = books.get(r);
+            rows.put(b, r);
+            if (b == book) return r;
+        }
+        return -1;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public Book getBook(int row) {
+        return books.get(row);
+    }
+
+    public void setBigPictureMode(boolean bigPictureMode) {
+        if (this.bigPictureMode == bigPictureMode) return;
+        this.bigPictureMode = bigPictureMode;
+        fireTableStructureChanged();
+    }
+
+    public boolean isBigPictureMode() {
+        return bigPictureMode;
+    }
+
+    public int getStatusColumn() {
+        return bigPictureMode ? 6 : 5;
+    }
+
+    @Override
+    public int getRowCount() {
+        return books.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return bigPictureMode ? COLUMNS_BIG_PICTURE.length : COLUMNS_SIMPLE.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return bigPictureMode ? COLUMNS_BIG_PICTURE[column] : COLUMNS_SIMPLE[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        if (bigPictureMode && column == 0) return ImageIcon.class;
+        if (column == getStatusColumn()) return Boolean.class;
+        return String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) { return false; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Book book = books.get(row);
+        if (!bigPictureMode) column++; // same layout, minus the cover
+
+        switch (column) {
+            case 0: return cover(book, row);
+            case 1: return book.getTitle();
+            case 2: return book.getAuthor();
+            case 3: return book.getGenre();
+            case 4: return book.getPublishingDate();
+            case 5: return book.getDisplayDate();
+            case 6: return book.hasDocument();
+            default: return null;
+        }
+    }
+
+    private ImageIcon cover(Book book, int row) {
+        ImageIcon icon = covers.get(book);
+        if (icon != null) return icon;
+
+        icon = CoverImageUtil.getCachedThumbnail(book);
+        if (icon != null) {
+            covers.put(book, icon);
+            return icon;
+        }
+
+        // Text cover now, the real one replaces just this cell once decoded
+        if (requested.add(book)) {
+            thumbnailLoader.load(book, () -> row >= firstWantedRow && row <= lastWantedRow, loaded -> {
+                requested.remove(book);
+                if (loaded == null) return; // scrolled away, asked again when it comes back into view
+                covers.put(book, loaded);
+                // Rows may have shifted since the request if books were added or removed above
+                int current = row < books.size() && books.get(row) == book ? row : rowOf(book);
+                if (bigPictureMode && current >= 0) fireTableCellUpdated(current, 0);
+            });
+        }
+        return placeholders.computeIfAbsent(book, b -> CoverImageUtil.createTextCover(b.getTitle()));
+    }
+
+    private static Map<Book, ImageIcon> lruMap() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Book, ImageIcon> eldest) {
+                return size() > MAX_COVERS;
+            }
+        };
+    }
+}
@@ -1,20 +1,19 @@
 package ui;
 
 import library.Book;
-import util.CoverImageUtil;
+import util.ThumbnailLoader;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.List;
 
 public class BookTablePanel extends JScrollPane {
     private final JTable bookTable;
-    private DefaultTableModel tableModel;
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
+    private final ThumbnailLoader thumbnailLoader = new ThumbnailLoader();
+    private final BookTableModel tableModel = new BookTableModel(thumbnailLoader);
 
     private Runnable onViewDetails;
     private Runnable onReadDocument;
@@ -22,17 +21,16 @@ public class BookTablePanel extends JScrollPane {
     private Runnable onRemove;
 
     private boolean isBigPictureMode = true;
+    private boolean continuousScroll; // one long list instead of pages, see setContinuousScroll
+
+    // Rows beyond either edge of the viewport whose covers are still worth decoding
+    private static final int ROW_BUFFER = 25;
     private final JButton toggleViewButton;
-    private List<Book> currentBooks; // keep reference to last refreshed books
 
     private Color rowSelectionColor = new Color(167, 199, 217, 184); // selected row highlight
     private Color headerColor = new Color(37, 131, 206); // column header background
 
     public BookTablePanel() {
-        // Initialize table model
-        setupTableModel();
-
-
         // Create JTable with custom row selection color
         bookTable = new JTable(tableModel) {
             @Override
@@ -73,6 +71,7 @@ public class BookTablePanel extends JScrollPane {
         setupPopupMenu();
 
         setViewportView(bookTable);
+        getViewport().addChangeListener(e -> viewportMoved());
         setupStatusCheckColumn();
 
 
@@ -80,30 +79,9 @@ public class BookTablePanel extends JScrollPane {
         toggleViewButton.addActionListener(e -> toggleViewMode());
     }
 
-    // setup model for table
-    private void setupTableModel() {
-        String[] columnsBigPicture = {"Cover", "Title", "Author", "Genre", "Year", "Date Added", "Book File Status"};
-        String[] columnsSimple = {"Title", "Author", "Genre", "Year", "Date Added", "Book File Status"};
-
-        tableModel = new DefaultTableModel(isBigPictureMode ? columnsBigPicture : columnsSimple, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) { return false; }
-
-            @Override
-            public Class<?> getColumnClass(int column) {
-                if (isBigPictureMode && column == 0) return ImageIcon.class;
-
-                int statusCol = isBigPictureMode ? 6 : 5;
-                if (column == statusCol) return Boolean.class;
-
-                return String.class;
-            }
-
-        };
-    }
     private void setupStatusCheckColumn() {
 
-        int statusCol = isBigPictureMode ? 6 : 5;
+        int statusCol = tableModel.getStatusColumn();
 
         bookTable.getColumnModel().getColumn(statusCol)
                 .setCellRenderer(new DefaultTableCellRenderer() {
@@ -193,56 +171,68 @@ public class BookTablePanel extends JScrollPane {
     }
 
     public void refreshTable(List<Book> books) {
-        this.currentBooks = books;
-        tableModel.setRowCount(0);
-
-        for (Book book : books) {
-            boolean docStatus = book.getDocumentPath() != null
-                    && !book.getDocumentPath().isEmpty();
-
-
-            if (isBigPictureMode) {
-                ImageIcon coverIcon = CoverImageUtil.createCoverThumbnail(book);
-                tableModel.addRow(new Object[]{
-                        coverIcon,
-                        book.getTitle(),
-                        book.getAuthor(),
-                        book.getGenre(),
-                        book.getPublishingDate(),
-                        DATE_FORMAT.format(book.getDateAdded()),
-                        docStatus
-                });
+        int row = bookTable.getSelectedRow();
+        Book selected = row >= 0 && row < tableModel.getRowCount() ? tableModel.getBook(row) : null;
 
-            } else {
-                tableModel.addRow(new Object[]{
-                        book.getTitle(),
-                        book.getAuthor(),
-                        book.getGenre(),
-                        book.getPublishingDate(),
-                        DATE_FORMAT.format(book.getDateAdded()),
-                        docStatus
-                });
+        tableModel.setBooks(books);
 
-            }
+        // Keep the same book selected if an edit moved it within the rows on screen
+        if (selected != null && (bookTable.getSelectedRow() < 0 || tableModel.getBook(bookTable.getSelectedRow()) != selected)) {
+            int moved = tableModel.rowOf(selected);
+            if (moved >= 0) bookTable.setRowSelectionInterval(moved, moved);
+            else bookTable.clearSelection();
         }
+        viewportMoved();
+    }
 
-        setColumnWidths();
+    // Call after editing a book in place, before the new search results arrive
+    public void bookChanged(Book book) {
+        tableModel.bookChanged(book);
+    }
+
+    // In continuous mode the whole result list is one table and the viewport decides which
+    // rows are painted; covers are decoded for those and prefetched a buffer beyond them
+    public void setContinuousScroll(boolean continuousScroll) {
+        this.continuousScroll = continuousScroll;
+        if (!continuousScroll) thumbnailLoader.cancelPrefetch();
+    }
+
+    private void viewportMoved() {
+        int rows = tableModel.getRowCount();
+        if (rows == 0) return;
+
+        Rectangle view = getViewport().getViewRect();
+        int first = bookTable.rowAtPoint(new Point(0, view.y));
+        int last = bookTable.rowAtPoint(new Point(0, view.y + view.height - 1));
+        if (first < 0) first = 0;
+        if (last < 0) last = rows - 1;
+
+        tableModel.setWantedRows(first - ROW_BUFFER, last + ROW_BUFFER);
+        if (!continuousScroll || !isBigPictureMode) return;
+
+        // Below the viewport first, the usual scroll direction
+        List<Book> books = tableModel.getBooks();
+        List<Book> ahead = new ArrayList<>(books.subList(last + 1, Math.min(rows, last + 1 + ROW_BUFFER)));
+        ahead.addAll(books.subList(Math.max(0, first - ROW_BUFFER), first));
+        thumbnailLoader.prefetch(ahead);
+    }
+
+    // Decodes covers of pages the user is likely to open next; a newer call replaces an older one
+    public void prefetchCovers(List<Book> books) {
+        if (isBigPictureMode) thumbnailLoader.prefetch(books);
+        else thumbnailLoader.cancelPrefetch();
     }
 
     public void toggleViewMode() {
         isBigPictureMode = !isBigPictureMode;
         toggleViewButton.setText(isBigPictureMode ? "Simple View" : "Big Picture");
 
-        setupTableModel();
-        bookTable.setModel(tableModel);
-
+        tableModel.setBigPictureMode(isBigPictureMode); // rebuilds the columns, rows stay as they are
         setupStatusCheckColumn();
 
         bookTable.setRowHeight(isBigPictureMode ? 80 : 30);
 
-
         setColumnWidths();
-        if (currentBooks != null) refreshTable(currentBooks);
 
         revalidate();
         repaint();
@@ -1,39 +1,97 @@
 package util;
 
 import library.Book;
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class CoverImageUtil {
-    // RAM Cache: Stores thumbnails so pagination is instant
-    private static final Map<String, ImageIcon> thumbnailCache = new HashMap<>();
+    // Default memory ceiling for cached thumbnails, overridable with -Dbookorganizer.thumbnailCacheMB=<MB>
+    private static final long DEFAULT_CACHE_MB = 32;
 
-    public static ImageIcon createCoverThumbnail(Book book) {
+    // RAM Cache: Stores thumbnails so pagination is instant, least recently used ones go first
+    private static final WeightedLruCache<String, ImageIcon> thumbnailCache = new WeightedLruCache<>(
+            Long.getLong("bookorganizer.thumbnailCacheMB", DEFAULT_CACHE_MB) << 20, CoverImageUtil::weigh);
+
+    // Roughly what the icon's pixels cost, at 4 bytes each
+    private static long weigh(ImageIcon icon) {
+        return 4L * Math.max(1, icon.getIconWidth()) * Math.max(1, icon.getIconHeight());
+    }
+
+    // Hit/miss/eviction counters live on the cache itself
+    public static WeightedLruCache<String, ImageIcon> getThumbnailCache() {
+        return thumbnailCache;
+    }
+
+    public static void setThumbnailCacheSize(long bytes) {
+        thumbnailCache.setMaxWeight(bytes);
+    }
+
+    // Images that could not be read, by path, with the file's modified time when they failed
+    // (0 if it was missing); they get the text cover until the file changes
+    private static final int MAX_FAILED = 4096;
+    private static final Map<String, Long> failed = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_FAILED;
+        }
+    });
+
+    // The thumbnail if it is already decoded, the text cover if there is no usable image,
+    // otherwise null. One cache lookup, so it counts once in the hit/miss statistics.
+    public static ImageIcon getCachedThumbnail(Book book) {
         String path = book.getImagePath();
+        if (path == null || path.isEmpty()) return createTextCover(book.getTitle());
 
-        if (path != null && !path.isEmpty()) {
-            if (thumbnailCache.containsKey(path)) return thumbnailCache.get(path);
+        ImageIcon icon = thumbnailCache.get(path);
+        if (icon == null && knownFailure(path)) return createTextCover(book.getTitle());
+        return icon;
+    }
 
-            try {
-                File file = new File(path);
-                if (file.exists()) {
-                    BufferedImage img = ImageIO.read(file);
-                    Image scaled = img.getScaledInstance(50, 70, Image.SCALE_SMOOTH);
-                    ImageIcon icon = new ImageIcon(scaled);
+    public static ImageIcon createCoverThumbnail(Book book) {
+        ImageIcon icon = getCachedThumbnail(book);
+        return icon != null ? icon : decodeThumbnail(book);
+    }
+
+    // Decodes the cover without looking in the memory cache; for callers that just missed it
+    public static ImageIcon decodeThumbnail(Book book) {
+        String path = book.getImagePath();
+        if (path == null || path.isEmpty() || knownFailure(path)) return createTextCover(book.getTitle());
+
+        File file = new File(path);
+        long modified = file.lastModified();
+        try {
+            if (file.exists()) {
+                // A thumbnail saved by an earlier launch beats decoding the original
+                BufferedImage img = ThumbnailDiskCache.load(file, 50, 70);
+                if (img == null) {
+                    img = ThumbnailDecoder.decode(file, 50, 70);
+                    if (img != null) ThumbnailDiskCache.store(file, 50, 70, img);
+                }
+                if (img != null) {
+                    ImageIcon icon = new ImageIcon(img);
                     thumbnailCache.put(path, icon);
+                    failed.remove(path);
                     return icon;
                 }
-            } catch (Exception e) {}
-        }
+            }
+        } catch (Exception e) {}
+
+        failed.put(path, modified);
         return createTextCover(book.getTitle());
     }
 
-    private static ImageIcon createTextCover(String title) {
+    private static boolean knownFailure(String path) {
+        Long modified = failed.get(path);
+        return modified != null && modified == new File(path).lastModified();
+    }
+
+    // Also the placeholder shown while a real cover is still decoding
+    public static ImageIcon createTextCover(String title) {
         BufferedImage img = new BufferedImage(50, 70, BufferedImage.TYPE_INT_RGB);
         Graphics2D g = img.createGraphics();
         g.setColor(new Color(70, 130, 180));
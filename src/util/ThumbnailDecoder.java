@@ -0,0 +1,69 @@
+package util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+// Decodes an image straight to thumbnail size. The reader skips source pixels while
+// decoding (subsampling), so a large scan is never held at full resolution. Subsampling
+// uses one step for both axes, so for a cover much narrower or wider than the target one
+// axis still has far to go; scale() gets there in steps of at most 2x, since a single
+// bicubic draw over a larger factor skips pixels and aliases.
+public class ThumbnailDecoder {
+
+    // Keep at least this much more detail than the target so the final draw can smooth it
+    private static final int HEADROOM = 2;
+
+    // The image scaled to width x height, or null if no installed reader understands the file
+    public static BufferedImage decode(File file, int width, int height) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            if (in == null) return null;
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int step = Math.max(1, Math.min(reader.getWidth(0) / (width * HEADROOM),
+                        reader.getHeight(0) / (height * HEADROOM)));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return scale(reader.read(0, param), width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public static BufferedImage scale(BufferedImage source, int width, int height) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        // Halve each axis that is still more than twice its target
+        BufferedImage current = source;
+        while (current.getWidth() > width * 2 || current.getHeight() > height * 2) {
+            int w = current.getWidth() > width * 2 ? current.getWidth() / 2 : current.getWidth();
+            int h = current.getHeight() > height * 2 ? current.getHeight() / 2 : current.getHeight();
+            current = draw(current, w, h, type);
+        }
+        return draw(current, width, height, type);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, int type) {
+        BufferedImage scaled = new BufferedImage(width, height, type);
+
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+}
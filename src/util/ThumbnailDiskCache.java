@@ -0,0 +1,123 @@
+package util;
+
+import service.BookCSVHandler;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+// Decoded thumbnails kept on disk between launches, one small PNG per (image path, size).
+// Each PNG's last-modified time is set to its source image's, so replacing or editing the
+// cover makes the times differ and the entry is decoded again; the stale PNG is deleted
+// as soon as that is noticed. The folder is capped in size: past the limit the entries
+// written longest ago go first, which also clears out covers no book uses anymore.
+public class ThumbnailDiskCache {
+
+    private static final File CACHE_FOLDER = new File(BookCSVHandler.FOLDER_PATH, "ThumbnailCache");
+
+    // Default size cap, overridable with -Dbookorganizer.thumbnailDiskCacheMB=<MB>
+    private static final long DEFAULT_MAX_MB = 64;
+    private static final long MAX_BYTES = Long.getLong("bookorganizer.thumbnailDiskCacheMB", DEFAULT_MAX_MB) << 20;
+
+    // Bytes of PNGs in the folder; -1 until the folder was first scanned
+    private static long totalBytes = -1;
+
+    // The cached thumbnail, or null when there is none or the source changed since
+    public static BufferedImage load(File source, int width, int height) {
+        File thumb = entry(source, width, height);
+        if (!thumb.isFile()) return null;
+
+        if (thumb.lastModified() == source.lastModified()) {
+            try {
+                BufferedImage img = ImageIO.read(thumb);
+                if (img != null && img.getWidth() == width && img.getHeight() == height) return img;
+            } catch (IOException e) {
+                // damaged entry, dropped below
+            }
+        }
+        delete(thumb);
+        return null;
+    }
+
+    // Best effort: the cache only saves time, so failing to write it is ignored
+    public static void store(File source, int width, int height, BufferedImage thumbnail) {
+        File thumb = entry(source, width, height);
+        File temp = null;
+        try {
+            Files.createDirectories(CACHE_FOLDER.toPath());
+            temp = File.createTempFile("thumb", ".tmp", CACHE_FOLDER);
+            if (!ImageIO.write(thumbnail, "png", temp)) return;
+
+            temp.setLastModified(source.lastModified());
+            long replaced = thumb.length(); // 0 when there was no entry
+            long written = temp.length();
+            Files.move(temp.toPath(), thumb.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            added(written - replaced);
+        } catch (IOException | RuntimeException e) {
+            // leave the original to be decoded again next time
+        } finally {
+            if (temp != null) temp.delete();
+        }
+    }
+
+    private static File entry(File source, int width, int height) {
+        String key = source.getAbsolutePath() + "|" + width + "|" + height;
+        return new File(CACHE_FOLDER, UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)) + ".png");
+    }
+
+    private static void delete(File thumb) {
+        long length = thumb.length();
+        if (thumb.delete()) added(-length);
+    }
+
+    private static synchronized void added(long bytes) {
+        if (totalBytes < 0) {
+            totalBytes = 0;
+            for (File f : entries()) totalBytes += f.length();
+        } else {
+            totalBytes += bytes;
+        }
+        if (totalBytes > MAX_BYTES) evict();
+    }
+
+    // Deletes the oldest entries until the folder is down to three quarters of the cap,
+    // so the next few stores don't each trigger another scan
+    private static void evict() {
+        List<File> files = entries();
+        List<long[]> ages = new ArrayList<>(files.size()); // {creation time, index}
+        totalBytes = 0;
+        for (int i = 0; i < files.size(); i++) {
+            File f = files.get(i);
+            totalBytes += f.length();
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(f.toPath(), BasicFileAttributes.class);
+                ages.add(new long[]{attrs.creationTime().toMillis(), i});
+            } catch (IOException e) {
+                ages.add(new long[]{0, i}); // unreadable, drop it first
+            }
+        }
+        ages.sort(Comparator.comparingLong(a -> a[0]));
+
+        long target = MAX_BYTES / 4 * 3;
+        for (long[] age : ages) {
+            if (totalBytes <= target) break;
+            File f = files.get((int) age[1]);
+            long length = f.length();
+            if (f.delete()) totalBytes -= length;
+        }
+    }
+
+    private static List<File> entries() {
+        File[] files = CACHE_FOLDER.listFiles((dir, name) -> name.endsWith(".png"));
+        return files == null ? List.of() : List.of(files);
+    }
+}
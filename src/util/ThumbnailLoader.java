@@ -0,0 +1,127 @@
+package util;
+
+import library.Book;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// Decodes cover thumbnails off the EDT. Each request belongs to the generation it was made
+// in; cancelAll() starts a new one, so covers for a page the user already left are skipped
+// before decoding and never delivered. Prefetches for neighbouring pages run separately,
+// one at a time on a low-priority thread, so they never hold up the visible page. A cover
+// is decoded once even when both ask for it at the same time.
+public class ThumbnailLoader {
+
+    private static final int THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS, r -> {
+        Thread t = new Thread(r, "thumbnail-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "thumbnail-prefetch");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    // EDT-only state
+    private final List<Future<?>> pending = new ArrayList<>();
+    private volatile long generation;
+    private Future<?> prefetch;
+    private volatile long prefetchGeneration;
+
+    // Decodes running on either executor, by image path
+    private final ConcurrentHashMap<String, CompletableFuture<ImageIcon>> inFlight = new ConcurrentHashMap<>();
+
+    // For a book CoverImageUtil.getCachedThumbnail just returned null for. onLoaded runs on
+    // the EDT, unless the request was cancelled in the meantime
+    public void load(Book book, Consumer<ImageIcon> onLoaded) {
+        load(book, () -> true, onLoaded);
+    }
+
+    // wanted is asked on the worker right before decoding (e.g. "is the row still near the
+    // viewport?"); when it says no, nothing is decoded and onLoaded gets null
+    public void load(Book book, BooleanSupplier wanted, Consumer<ImageIcon> onLoaded) {
+        final long gen = generation;
+        if (pending.size() > 256) pending.removeIf(Future::isDone); // long scrolls never cancelAll()
+        pending.add(executor.submit(() -> {
+            if (gen != generation) return;
+            // The caller has just missed the memory cache, so go straight to decoding
+            ImageIcon icon = wanted.getAsBoolean() ? decode(book) : null;
+            SwingUtilities.invokeLater(() -> {
+                if (gen == generation) onLoaded.accept(icon);
+            });
+        }));
+    }
+
+    // Warms the thumbnail cache for books that aren't on screen yet, replacing any earlier prefetch
+    public void prefetch(List<Book> books) {
+        cancelPrefetch();
+        final long gen = prefetchGeneration;
+        final List<Book> toLoad = new ArrayList<>(books);
+        prefetch = prefetcher.submit(() -> {
+            for (Book book : toLoad) {
+                if (gen != prefetchGeneration) return;
+                if (CoverImageUtil.getCachedThumbnail(book) == null) decode(book);
+            }
+        });
+    }
+
+    // Decodes the cover, or waits for the decode already running for the same image instead
+    // of reading it and writing its disk cache entry a second time
+    private ImageIcon decode(Book book) {
+        String path = book.getImagePath();
+        if (path == null || path.isEmpty()) return CoverImageUtil.decodeThumbnail(book);
+
+        CompletableFuture<ImageIcon> mine = new CompletableFuture<>();
+        CompletableFuture<ImageIcon> running = inFlight.putIfAbsent(path, mine);
+        if (running != null) {
+            ImageIcon decoded = running.join();
+            // The text cover for a failed image carries the other book's title; look again for ours
+            ImageIcon icon = CoverImageUtil.getCachedThumbnail(book);
+            return icon != null ? icon : decoded;
+        }
+
+        try {
+            ImageIcon icon = CoverImageUtil.decodeThumbnail(book);
+            mine.complete(icon);
+            return icon;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(path, mine);
+        }
+    }
+
+    public void cancelPrefetch() {
+        prefetchGeneration++;
+        if (prefetch != null) prefetch.cancel(false);
+        prefetch = null;
+    }
+
+    // Drops every request made so far; call before asking for a new page's covers
+    public void cancelAll() {
+        generation++;
+        for (Future<?> f : pending) f.cancel(false);
+        pending.clear();
+    }
+
+    public void shutdown() {
+        cancelAll();
+        cancelPrefetch();
+        executor.shutdownNow();
+        prefetcher.shutdownNow();
+    }
+}
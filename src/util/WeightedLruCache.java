@@ -0,0 +1,95 @@
+package util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe LRU cache bounded by total weight instead of entry count. Each value's
+ * weight comes from the weigher (e.g. bytes of pixels); once the total passes the
+ * maximum, least recently used entries are evicted until it fits again.
+ */
+public class WeightedLruCache<K, V> {
+
+    // Access order: iteration starts at the least recently used entry
+    private final LinkedHashMap<K, V> map = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<K, Long> weights = new HashMap<>();
+    private final ToLongFunction<V> weigher;
+
+    private long maxWeight;
+    private long totalWeight;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public WeightedLruCache(long maxWeight, ToLongFunction<V> weigher) {
+        if (maxWeight < 0) throw new IllegalArgumentException("maxWeight < 0");
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    // The cached value, or null; counts as a hit or miss
+    public synchronized V get(K key) {
+        V value = map.get(key);
+        if (value != null) hits++;
+        else misses++;
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        remove(key);
+        if (weight > maxWeight) return; // would evict everything else and still not fit
+
+        map.put(key, value);
+        weights.put(key, weight);
+        totalWeight += weight;
+        trim();
+    }
+
+    public synchronized V remove(K key) {
+        V value = map.remove(key);
+        Long weight = weights.remove(key);
+        if (weight != null) totalWeight -= weight;
+        return value;
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        weights.clear();
+        totalWeight = 0;
+    }
+
+    // Lowering the maximum evicts right away
+    public synchronized void setMaxWeight(long maxWeight) {
+        if (maxWeight < 0) throw new IllegalArgumentException("maxWeight < 0");
+        this.maxWeight = maxWeight;
+        trim();
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<K, V>> it = map.entrySet().iterator();
+        while (totalWeight > maxWeight && it.hasNext()) {
+            K eldest = it.next().getKey();
+            it.remove();
+            totalWeight -= weights.remove(eldest);
+            evictions++;
+        }
+    }
+
+    public synchronized long getMaxWeight() { return maxWeight; }
+    public synchronized long getWeight() { return totalWeight; }
+    public synchronized int size() { return map.size(); }
+    public synchronized long getHitCount() { return hits; }
+    public synchronized long getMissCount() { return misses; }
+    public synchronized long getEvictionCount() { return evictions; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d entries, %d/%d KB, %d hits, %d misses, %d evictions",
+                map.size(), totalWeight / 1024, maxWeight / 1024, hits, misses, evictions);
+    }
+}